@@ -0,0 +1,169 @@
+package indexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Klasa generująca deterministyczny zbiór dokumentów w języku polskim i
+ * angielskim, na którym uruchamiane są testy wydajności. Dla tego samego
+ * ziarna i liczby dokumentów zbiór jest zawsze taki sam.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class Corpus {
+	/**
+	 * Słowa, z których składają się dokumenty w języku polskim.
+	 */
+	static final String[] polishWords = { "ala", "ma", "kota", "pies", "biega", "po",
+			"łące", "słońce", "świeci", "nad", "miastem", "drzewa", "rosną", "w", "ogrodzie",
+			"który", "jest", "bardzo", "ładny", "kwiaty", "oraz", "gdzie", "rzeka", "płynie",
+			"przez", "las", "dzieci", "bawią", "się", "szkole", "książka", "leży", "na", "stole",
+			"zielony", "dom", "stoi", "przy", "drodze", "wieczorem" };
+
+	/**
+	 * Słowa, z których składają się dokumenty w języku angielskim.
+	 */
+	static final String[] englishWords = { "the", "quick", "brown", "fox", "jumps",
+			"over", "lazy", "dog", "while", "sun", "shines", "above", "city", "trees", "grow",
+			"in", "garden", "which", "is", "very", "nice", "flowers", "and", "where", "river",
+			"flows", "through", "forest", "children", "play", "at", "school", "book", "lies",
+			"on", "table", "green", "house", "stands", "road" };
+
+	/**
+	 * Liczba dokumentów w jednym katalogu.
+	 */
+	private static final int documentsPerDirectory = 50;
+
+	/**
+	 * Katalog główny wygenerowanego zbioru.
+	 */
+	private final Path root;
+
+	/**
+	 * Ścieżki do wygenerowanych dokumentów.
+	 */
+	private final List<Path> documents = new ArrayList<Path>();
+
+	/**
+	 * Konstruktor klasy Corpus, zapisujący dokumenty w nowym katalogu
+	 * tymczasowym. Dokumenty o parzystych numerach są w języku angielskim, a o
+	 * nieparzystych w polskim; każdy ma od 200 do 2000 słów.
+	 * 
+	 * @param count liczba dokumentów
+	 * @param seed  ziarno generatora liczb losowych
+	 * @throws IOException
+	 */
+	public Corpus(int count, long seed) throws IOException {
+		root = Files.createTempDirectory("corpus");
+		Random random = new Random(seed);
+		for (int i = 0; i < count; i++) {
+			Path directory = root.resolve("d" + (i / documentsPerDirectory));
+			Files.createDirectories(directory);
+			Path document = directory.resolve("f" + i + ".txt");
+			Files.write(document, text(random, (i % 2 == 0) ? englishWords : polishWords,
+					200 + random.nextInt(1800)).getBytes(StandardCharsets.UTF_8));
+			documents.add(document);
+		}
+	}
+
+	/**
+	 * Metoda generująca tekst z podanych słów.
+	 * 
+	 * @param random generator liczb losowych
+	 * @param words  słowa
+	 * @param length liczba słów
+	 * @return tekst
+	 */
+	public static String text(Random random, String[] words, int length) {
+		StringBuilder text = new StringBuilder(length * 8);
+		for (int i = 0; i < length; i++) {
+			text.append(words[random.nextInt(words.length)]);
+			text.append((i % 12 == 11) ? ".\n" : " ");
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Metoda dająca w wyniku katalog główny zbioru.
+	 * 
+	 * @return ścieżka do katalogu
+	 */
+	public Path root() {
+		return root;
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżki do dokumentów zbioru.
+	 * 
+	 * @return lista ścieżek
+	 */
+	public List<Path> documents() {
+		return documents;
+	}
+
+	/**
+	 * Metoda usuwająca wygenerowany zbiór.
+	 * 
+	 * @throws IOException
+	 */
+	public void delete() throws IOException {
+		deleteRecursively(root);
+	}
+
+	/**
+	 * Metoda przygotowująca katalog roboczy na indeks budowany przez test.
+	 * Indekser i wyszukiwarka używają katalogu index w bieżącym katalogu, więc
+	 * testy uruchamiane są w pustym katalogu, a istniejący indeks, który nie
+	 * został utworzony przez test, nie jest nigdy usuwany.
+	 * 
+	 * @throws IOException
+	 */
+	public static void prepareIndexDirectory() throws IOException {
+		Path index = Paths.get("index");
+		Path marker = index.resolve("benchmark");
+		if (Files.exists(index) && !Files.exists(marker)) {
+			throw new IllegalStateException(
+					"Directory index exists, run benchmarks from an empty directory");
+		}
+		deleteRecursively(index);
+		Files.createDirectories(index);
+		Files.createFile(marker);
+	}
+
+	/**
+	 * Metoda usuwająca katalog wraz z zawartością, o ile istnieje.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 * @throws IOException
+	 */
+	public static void deleteRecursively(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+					throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+					throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
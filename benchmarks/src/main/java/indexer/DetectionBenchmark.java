@@ -0,0 +1,174 @@
+package indexer;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Klasa porównująca rozpoznawanie języka na podstawie całego tekstu i na
+ * podstawie próbki złożonej z fragmentów tekstu. Dokumenty są długie i
+ * mieszane: około co piąty akapit jest w drugim języku, a poprawnym wynikiem
+ * jest język przeważający. Test wydajności mierzy liczbę rozpoznanych
+ * dokumentów na sekundę, a metoda main wypisuje dla obu sposobów odsetek
+ * poprawnych wyników i czas rozpoznawania.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionBenchmark {
+	/**
+	 * Liczba znaków próbki; 0 oznacza rozpoznawanie na podstawie całego tekstu.
+	 */
+	@Param({ "0", "10000" })
+	public String sample;
+
+	/**
+	 * Liczba słów w dokumencie.
+	 */
+	@Param({ "60000" })
+	public int words;
+
+	/**
+	 * Silnik ekstrakcji.
+	 */
+	private ExtractionEngine engine;
+
+	/**
+	 * Teksty dokumentów.
+	 */
+	private String[] texts;
+
+	/**
+	 * Numer następnego dokumentu.
+	 */
+	private int next;
+
+	/**
+	 * Metoda przygotowująca dokumenty i silnik z podanym rozmiarem próbki.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		texts = texts(40, words, 42);
+		engine = engine(sample);
+	}
+
+	/**
+	 * Test rozpoznawania języka dokumentu.
+	 * 
+	 * @return kod języka
+	 * @throws IOException
+	 */
+	@Benchmark
+	public String detect() throws IOException {
+		next = (next + 1) % texts.length;
+		return engine.detectLanguage(texts[next]);
+	}
+
+	/**
+	 * Metoda kończąca test.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		engine.close();
+	}
+
+	/**
+	 * Metoda tworząca silnik ekstrakcji z podanym rozmiarem próbki.
+	 * 
+	 * @param sample liczba znaków próbki
+	 * @return silnik ekstrakcji
+	 * @throws IOException
+	 */
+	private static ExtractionEngine engine(String sample) throws IOException {
+		System.setProperty("extractor.detectionSample", sample);
+		try {
+			return new ExtractionEngine(new Languages());
+		} finally {
+			System.clearProperty("extractor.detectionSample");
+		}
+	}
+
+	/**
+	 * Metoda generująca dokumenty mieszane. Dokumenty o parzystych numerach są
+	 * przeważnie w języku angielskim, a o nieparzystych przeważnie w polskim.
+	 * 
+	 * @param count liczba dokumentów
+	 * @param words liczba słów w dokumencie
+	 * @param seed  ziarno generatora liczb losowych
+	 * @return teksty dokumentów
+	 */
+	private static String[] texts(int count, int words, long seed) {
+		Random random = new Random(seed);
+		String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			String[] main = (i % 2 == 0) ? Corpus.englishWords : Corpus.polishWords;
+			String[] other = (i % 2 == 0) ? Corpus.polishWords : Corpus.englishWords;
+			StringBuilder text = new StringBuilder(words * 8);
+			for (int left = words; left > 0;) {
+				int paragraph = Math.min(left, 100 + random.nextInt(400));
+				text.append(Corpus.text(random, (random.nextInt(5) == 0) ? other : main, paragraph));
+				text.append('\n');
+				left -= paragraph;
+			}
+			texts[i] = text.toString();
+		}
+		return texts;
+	}
+
+	/**
+	 * Metoda wypisująca odsetek poprawnie rozpoznanych dokumentów i czas
+	 * rozpoznawania dla całego tekstu i dla próbki. Argumentami są kolejno
+	 * liczba dokumentów, liczba słów w dokumencie i rozmiar próbki.
+	 * 
+	 * @param args argumenty
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+		int words = (args.length > 1) ? Integer.parseInt(args[1]) : 60000;
+		String sample = (args.length > 2) ? args[2] : "10000";
+		String[] texts = texts(count, words, 42);
+
+		for (String mode : new String[] { "0", sample }) {
+			try (ExtractionEngine engine = engine(mode)) {
+				for (int round = 0; round < 2; round++) {
+					int correct = 0;
+					long start = System.nanoTime();
+					for (int i = 0; i < texts.length; i++) {
+						if (engine.detectLanguage(texts[i]).equals((i % 2 == 0) ? "en" : "pl")) {
+							correct++;
+						}
+					}
+					double seconds = (System.nanoTime() - start) / 1e9;
+					if (round == 1) {
+						System.out.printf("%s: %d/%d correct, %.1f docs/s%n",
+								mode.equals("0") ? "full text" : "sample " + mode, correct,
+								texts.length, texts.length / seconds);
+					}
+				}
+			}
+		}
+	}
+}
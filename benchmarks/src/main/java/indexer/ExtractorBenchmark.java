@@ -0,0 +1,159 @@
+package indexer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tika.exception.TikaException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+/**
+ * Klasa z testami wydajności ekstrakcji tekstu: osobno parsowania, osobno
+ * rozpoznawania języka i obu etapów razem, a dla porównania także ekstrakcji
+ * z nowym silnikiem tworzonym dla każdego pliku.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmark {
+	/**
+	 * Silnik ekstrakcji.
+	 */
+	private ExtractionEngine engine;
+
+	/**
+	 * Dostępne języki.
+	 */
+	private Languages languages;
+
+	/**
+	 * Zawartość kolejnych dokumentów.
+	 */
+	private byte[][] documents;
+
+	/**
+	 * Wyekstraktowany tekst kolejnych dokumentów.
+	 */
+	private String[] texts;
+
+	/**
+	 * Numer następnego dokumentu.
+	 */
+	private int next;
+
+	/**
+	 * Metoda przygotowująca dokumenty i silnik ekstrakcji.
+	 * 
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	@Setup
+	public void setUp() throws IOException, SAXException, TikaException {
+		Corpus corpus = new Corpus(200, 42);
+		languages = new Languages();
+		engine = new ExtractionEngine(languages);
+		List<Path> paths = corpus.documents();
+		documents = new byte[paths.size()][];
+		texts = new String[paths.size()];
+		for (int i = 0; i < documents.length; i++) {
+			documents[i] = Files.readAllBytes(paths.get(i));
+			texts[i] = engine.parse(new ByteArrayInputStream(documents[i]));
+		}
+		corpus.delete();
+	}
+
+	/**
+	 * Metoda dająca w wyniku numer następnego dokumentu.
+	 * 
+	 * @return numer dokumentu
+	 */
+	private int next() {
+		next = (next + 1) % documents.length;
+		return next;
+	}
+
+	/**
+	 * Test parsowania dokumentu bez rozpoznawania języka.
+	 * 
+	 * @return tekst dokumentu
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	@Benchmark
+	public String parse() throws IOException, SAXException, TikaException {
+		return engine.parse(new ByteArrayInputStream(documents[next()]));
+	}
+
+	/**
+	 * Test rozpoznawania języka wyekstraktowanego tekstu.
+	 * 
+	 * @return kod języka
+	 * @throws IOException
+	 */
+	@Benchmark
+	public String detectLanguage() throws IOException {
+		return engine.detectLanguage(texts[next()]);
+	}
+
+	/**
+	 * Test pełnej ekstrakcji: parsowania i rozpoznawania języka.
+	 * 
+	 * @return kod języka
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	@Benchmark
+	public String extract() throws IOException, SAXException, TikaException {
+		try (Extractor extractor = engine.extract(new ByteArrayInputStream(documents[next()]))) {
+			return extractor.language();
+		}
+	}
+
+	/**
+	 * Test pełnej ekstrakcji, w której dla każdego dokumentu tworzony jest nowy
+	 * silnik z parserem i wczytanymi modelami języków.
+	 * 
+	 * @return kod języka
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	@Benchmark
+	public String extractWithNewEngine() throws IOException, SAXException, TikaException {
+		try (Extractor extractor = new Extractor(new ByteArrayInputStream(documents[next()]),
+				languages)) {
+			return extractor.language();
+		}
+	}
+
+	/**
+	 * Metoda kończąca test.
+	 */
+	@TearDown
+	public void tearDown() {
+		engine.close();
+	}
+}
@@ -0,0 +1,158 @@
+package indexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Klasa z testami wydajności indeksowania pojedynczych dokumentów oraz
+ * usuwania dokumentów z indeksu. Testy budują indeks w katalogu index w
+ * bieżącym katalogu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexerBenchmark {
+	/**
+	 * Wygenerowany zbiór dokumentów.
+	 */
+	private Corpus corpus;
+
+	/**
+	 * Ścieżki do dokumentów zbioru.
+	 */
+	private List<Path> documents;
+
+	/**
+	 * Indekser.
+	 */
+	private Indexer indexer;
+
+	/**
+	 * Dostępne języki.
+	 */
+	private Languages languages;
+
+	/**
+	 * Numer następnego dokumentu.
+	 */
+	private int next;
+
+	/**
+	 * Metoda przygotowująca zbiór dokumentów i pusty indeks.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		corpus = new Corpus(200, 42);
+		documents = corpus.documents();
+		Corpus.prepareIndexDirectory();
+		languages = new Languages();
+		indexer = new Indexer(1);
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżkę do następnego dokumentu.
+	 * 
+	 * @return ścieżka do dokumentu
+	 */
+	private Path next() {
+		next = (next + 1) % documents.size();
+		return documents.get(next);
+	}
+
+	/**
+	 * Klasa stanu testu usuwania katalogu, zapewniająca, że przed każdą
+	 * iteracją katalog jest zaindeksowany.
+	 */
+	@State(Scope.Benchmark)
+	public static class IndexedDirectory {
+		/**
+		 * Ścieżka do usuwanego katalogu.
+		 */
+		Path directory;
+
+		/**
+		 * Metoda indeksująca usuwany katalog.
+		 * 
+		 * @param benchmark stan testu
+		 * @throws IOException
+		 */
+		@Setup(Level.Iteration)
+		public void setUp(IndexerBenchmark benchmark) throws IOException {
+			directory = benchmark.documents.get(0).getParent();
+			benchmark.indexer.indexDocuments(directory, benchmark.languages);
+			benchmark.indexer.commit();
+		}
+	}
+
+	/**
+	 * Test indeksowania pojedynczego dokumentu, łącznie z ekstrakcją tekstu.
+	 * 
+	 * @throws IOException
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void indexDocument() throws IOException {
+		indexer.indexDocuments(next(), languages);
+	}
+
+	/**
+	 * Test usuwania z indeksu pojedynczego dokumentu.
+	 * 
+	 * @throws IOException
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void removeDocument() throws IOException {
+		indexer.removeDocuments(next().toString());
+	}
+
+	/**
+	 * Test usuwania z indeksu całego katalogu wraz z zatwierdzeniem zmian.
+	 * 
+	 * @param indexed stan z zaindeksowanym katalogiem
+	 * @throws IOException
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 20)
+	@Warmup(iterations = 5)
+	public void removeDirectory(IndexedDirectory indexed) throws IOException {
+		indexer.removeDocuments(indexed.directory.toString());
+		indexer.commit();
+	}
+
+	/**
+	 * Metoda zamykająca indeks i usuwająca zbiór dokumentów.
+	 * 
+	 * @throws IOException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		indexer.closeIndexWriters();
+		corpus.delete();
+	}
+}
@@ -0,0 +1,202 @@
+package indexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Klasa z testami czasu usuwania katalogu i podmiany zmienionego pliku w
+ * indeksie z bardzo dużą liczbą ścieżek. Indeks zawiera tylko pola path i
+ * ancestor w takiej postaci, w jakiej zapisuje je indekser, dzięki czemu da
+ * się go szybko zbudować dla milionów ścieżek. Porównywane są trzy sposoby:
+ * <ul>
+ * <li>wildcard - zapytanie WildcardQuery o przedrostek ścieżki, usuwane przed
+ * dodaniem nowej wersji pliku,</li>
+ * <li>prefix - zapytanie PrefixQuery o przedrostek ścieżki, używane dla
+ * indeksów bez termów katalogów,</li>
+ * <li>term - usunięcie pojedynczego termu ancestor albo podmiana dokumentu
+ * metodą updateDocument po termie path.</li>
+ * </ul>
+ * Każda operacja kończy się zatwierdzeniem zmian, bo dopiero wtedy zapytania
+ * usuwające są wykonywane.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class PathDeleteBenchmark {
+	/**
+	 * Liczba plików w jednym katalogu.
+	 */
+	private static final int filesPerDirectory = 1000;
+
+	/**
+	 * Liczba podkatalogów w jednym katalogu najwyższego poziomu.
+	 */
+	private static final int directoriesPerRoot = 100;
+
+	/**
+	 * Sposób usuwania dokumentów.
+	 */
+	@Param({ "wildcard", "prefix", "term" })
+	public String strategy;
+
+	/**
+	 * Liczba ścieżek w indeksie.
+	 */
+	@Param({ "1000000" })
+	public int paths;
+
+	/**
+	 * Katalog z indeksem.
+	 */
+	private Path index;
+
+	/**
+	 * Obiekt klasy IndexWriter.
+	 */
+	private IndexWriter writer;
+
+	/**
+	 * Liczba wykonanych operacji.
+	 */
+	private int operations;
+
+	/**
+	 * Metoda budująca indeks z podaną liczbą ścieżek.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		index = Files.createTempDirectory("paths");
+		IndexWriterConfig config = new IndexWriterConfig();
+		config.setRAMBufferSizeMB(256);
+		writer = new IndexWriter(FSDirectory.open(index), config);
+		for (int i = 0; i < paths; i++) {
+			writer.addDocument(document(file(i)));
+		}
+		writer.commit();
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżkę do pliku o podanym numerze. Numery
+	 * katalogów mają stałą długość, tak aby żaden katalog nie był przedrostkiem
+	 * innego.
+	 * 
+	 * @param i numer pliku
+	 * @return ścieżka do pliku
+	 */
+	private static Path file(int i) {
+		return directory(i / filesPerDirectory).resolve("f" + i + ".txt");
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżkę do katalogu o podanym numerze.
+	 * 
+	 * @param i numer katalogu
+	 * @return ścieżka do katalogu
+	 */
+	private static Path directory(int i) {
+		return Paths.get(File.separator, "data", String.format("d%03d", i / directoriesPerRoot),
+				String.format("s%02d", i % directoriesPerRoot));
+	}
+
+	/**
+	 * Metoda tworząca dokument z polami ścieżki pliku i ścieżek katalogów.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return dokument
+	 */
+	private static Document document(Path file) {
+		Document document = new Document();
+		document.add(new StringField("path", file.toString(), Field.Store.YES));
+		for (Path ancestor = file.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			document.add(new StringField("ancestor", ancestor.toString(), Field.Store.NO));
+		}
+		return document;
+	}
+
+	/**
+	 * Test usuwania zawartości katalogu, tak jak przy --rm. Każde wywołanie
+	 * usuwa inny katalog.
+	 * 
+	 * @throws IOException
+	 */
+	@Benchmark
+	public void removeDirectory() throws IOException {
+		String directory = directory(operations++ * 7 % (paths / filesPerDirectory)).toString();
+		if (strategy.equals("wildcard")) {
+			writer.deleteDocuments(new WildcardQuery(new Term("path", directory + "*")));
+		} else if (strategy.equals("prefix")) {
+			writer.deleteDocuments(new PrefixQuery(new Term("path", directory + File.separator)));
+		} else {
+			writer.deleteDocuments(new Term("ancestor", directory));
+		}
+		writer.commit();
+	}
+
+	/**
+	 * Test podmiany dokumentu zmienionego pliku, tak jak po zdarzeniu MODIFY w
+	 * obserwatorze katalogów. Każde wywołanie podmienia inny plik.
+	 * 
+	 * @throws IOException
+	 */
+	@Benchmark
+	public void modifyFile() throws IOException {
+		Path file = file(operations++ * 7919 % paths);
+		String path = file.toString();
+		if (strategy.equals("wildcard")) {
+			writer.deleteDocuments(new WildcardQuery(new Term("path", path + "*")));
+			writer.addDocument(document(file));
+		} else if (strategy.equals("prefix")) {
+			writer.deleteDocuments(new PrefixQuery(new Term("path", path)));
+			writer.addDocument(document(file));
+		} else {
+			writer.updateDocument(new Term("path", path), document(file));
+		}
+		writer.commit();
+	}
+
+	/**
+	 * Metoda zamykająca indeks i usuwająca go z dysku.
+	 * 
+	 * @throws IOException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		writer.close();
+		Corpus.deleteRecursively(index);
+	}
+}
@@ -0,0 +1,105 @@
+package indexer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Klasa z testem czasu indeksowania całego drzewa katalogów przy różnej
+ * liczbie wątków ekstrakcji. Każda iteracja buduje indeks od nowa w katalogu
+ * index w bieżącym katalogu, a przyspieszenie to stosunek czasu dla jednego
+ * wątku do czasu dla wielu wątków.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+	/**
+	 * Liczba wątków ekstrakcji.
+	 */
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	/**
+	 * Liczba dokumentów w zbiorze.
+	 */
+	@Param({ "2000" })
+	public int documents;
+
+	/**
+	 * Wygenerowany zbiór dokumentów.
+	 */
+	private Corpus corpus;
+
+	/**
+	 * Dostępne języki.
+	 */
+	private Languages languages;
+
+	/**
+	 * Indekser.
+	 */
+	private Indexer indexer;
+
+	/**
+	 * Metoda przygotowująca zbiór dokumentów.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		corpus = new Corpus(documents, 42);
+		languages = new Languages();
+	}
+
+	/**
+	 * Metoda przygotowująca pusty indeks przed każdą iteracją.
+	 * 
+	 * @throws IOException
+	 */
+	@Setup(Level.Iteration)
+	public void openIndex() throws IOException {
+		Corpus.prepareIndexDirectory();
+		indexer = new Indexer(threads);
+	}
+
+	/**
+	 * Test indeksowania całego zbioru wraz z zapisaniem indeksu na dysk.
+	 * 
+	 * @throws IOException
+	 */
+	@Benchmark
+	public void indexDirectory() throws IOException {
+		indexer.indexDocuments(corpus.root(), languages);
+		indexer.closeIndexWriters();
+	}
+
+	/**
+	 * Metoda usuwająca zbiór dokumentów.
+	 * 
+	 * @throws IOException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		corpus.delete();
+	}
+}
@@ -0,0 +1,162 @@
+package searcher;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import indexer.Corpus;
+import indexer.Indexer;
+import indexer.Languages;
+
+/**
+ * Klasa z testami czasu wykonania zapytań TERM, PHRASE i FUZZY, z
+ * wyznaczaniem kontekstów i bez, przy przeszukiwaniu segmentów w jednym
+ * wątku i na puli wątków. Indeks budowany jest z wygenerowanego zbioru
+ * dokumentów w katalogu index w bieżącym katalogu, z zatwierdzeniem zmian po
+ * każdym katalogu zbioru i bez łączenia małych segmentów, tak aby jak indeks
+ * aktualizowany przez obserwatora katalogów składał się z wielu segmentów.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearcherBenchmark {
+	/**
+	 * Sposób wyszukiwania.
+	 */
+	@Param({ "term", "phrase", "fuzzy" })
+	public String mode;
+
+	/**
+	 * Informacja, czy wyznaczać konteksty wyników.
+	 */
+	@Param({ "false", "true" })
+	public boolean details;
+
+	/**
+	 * Przeszukiwany język.
+	 */
+	@Param({ "en", "all" })
+	public String language;
+
+	/**
+	 * Maksymalna liczba wyników.
+	 */
+	@Param({ "10" })
+	public int limit;
+
+	/**
+	 * Liczba wątków przeszukujących segmenty indeksu.
+	 */
+	@Param({ "1", "4" })
+	public int threads;
+
+	/**
+	 * Wygenerowany zbiór dokumentów.
+	 */
+	private Corpus corpus;
+
+	/**
+	 * Wyszukiwarka.
+	 */
+	private Searcher searcher;
+
+	/**
+	 * Obiekt klasy Analyzer.
+	 */
+	private final Analyzer analyzer = new StandardAnalyzer();
+
+	/**
+	 * Wykonywane zapytanie.
+	 */
+	private Query query;
+
+	/**
+	 * Metoda budująca wielosegmentowy indeks i przygotowująca zapytanie.
+	 * 
+	 * @throws IOException
+	 * @throws IncorrectSearchingArgument
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, IncorrectSearchingArgument {
+		corpus = new Corpus(4000, 42);
+		Corpus.prepareIndexDirectory();
+		System.setProperty("writer.segmentsPerTier", "1000");
+		try {
+			Indexer indexer = new Indexer();
+			Languages languages = new Languages();
+			try (DirectoryStream<Path> directories = Files.newDirectoryStream(corpus.root())) {
+				for (Path directory : directories) {
+					indexer.indexDocuments(directory, languages);
+					indexer.commit();
+				}
+			}
+			indexer.closeIndexWriters();
+		} finally {
+			System.clearProperty("writer.segmentsPerTier");
+		}
+
+		searcher = new Searcher(threads);
+		if (mode.equals("term")) {
+			query = Searcher.buildQuery(mode, "fox");
+		} else if (mode.equals("phrase")) {
+			query = Searcher.buildQuery(mode, "brown fox");
+		} else {
+			query = Searcher.buildQuery(mode, "foxes");
+		}
+	}
+
+	/**
+	 * Test wykonania zapytania.
+	 * 
+	 * @param blackhole obiekt pochłaniający wyniki
+	 * @return liczba pasujących dokumentów
+	 * @throws IOException
+	 */
+	@Benchmark
+	public int search(Blackhole blackhole) throws IOException {
+		List<Searcher.Hit> hits = new ArrayList<Searcher.Hit>(limit);
+		int count = searcher.search(language, query, analyzer, limit, Searcher.defaultPageSize,
+				details, hits);
+		blackhole.consume(hits);
+		return count;
+	}
+
+	/**
+	 * Metoda zamykająca wyszukiwarkę i usuwająca zbiór dokumentów.
+	 * 
+	 * @throws IOException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		searcher.closeReaders();
+		corpus.delete();
+	}
+}
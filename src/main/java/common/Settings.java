@@ -0,0 +1,221 @@
+package common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
+import org.apache.lucene.codecs.lucene80.Lucene80Codec;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+
+/**
+ * Klasa wczytująca ustawienia indeksera i wyszukiwarki z pliku
+ * config.properties w bieżącym katalogu (lub pliku podanym we właściwości
+ * config) oraz tworząca na ich podstawie katalogi indeksu i konfigurację
+ * obiektów IndexWriter. Ustawienie profile wybiera jeden z gotowych profili:
+ * bulk-load, watcher lub read-heavy. Ustawienia podane przy uruchamianiu
+ * programu (-D) mają pierwszeństwo przed plikiem, a plik przed profilem.
+ * 
+ * Ustawienia magazynu indeksu:
+ * <ul>
+ * <li>store.directory - fs (domyślnie wybierany przez Lucene), mmap lub
+ * nio,</li>
+ * <li>store.nrtCache - czy buforować w pamięci małe segmenty (true lub
+ * false),</li>
+ * <li>store.nrtMaxMergeMB, store.nrtMaxCachedMB - rozmiary tego bufora,</li>
+ * <li>writer.ramBufferMB - rozmiar bufora dokumentów obiektu IndexWriter,</li>
+ * <li>writer.mergePolicy - tiered lub logbyte,</li>
+ * <li>writer.segmentsPerTier, writer.maxMergedSegmentMB - ustawienia
+ * łączenia segmentów,</li>
+ * <li>writer.mergeThreads - liczba wątków łączenia segmentów,</li>
+ * <li>writer.compression - tryb zapisu przechowywanych pól: BEST_SPEED lub
+ * BEST_COMPRESSION,</li>
+ * <li>writer.compoundFile - czy zapisywać segmenty w jednym pliku.</li>
+ * </ul>
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class Settings {
+	/**
+	 * Domyślna ścieżka do pliku z ustawieniami.
+	 */
+	private static final String configFile = "config.properties";
+
+	/**
+	 * Katalog zasobów z profilami.
+	 */
+	private static final String profilesPath = "/profiles/";
+
+	/**
+	 * Metoda wczytująca ustawienia z pliku i wybranego profilu do właściwości
+	 * systemowych, z których czytają je pozostałe klasy. Musi być wywołana na
+	 * początku metody main, przed utworzeniem innych obiektów. Sprawdzane są
+	 * wartości ustawień wyliczeniowych oraz limitów rozmiaru plików
+	 * filter.maxSizeMB, które muszą być liczbami całkowitymi.
+	 * 
+	 * @throws IOException wyjątek zgłaszany, gdy nie można odczytać pliku,
+	 *                     profil nie istnieje lub wartość ustawienia jest
+	 *                     niedozwolona
+	 */
+	public static void load() throws IOException {
+		Properties file = new Properties();
+		Path path = Paths.get(System.getProperty("config", configFile));
+		if (Files.exists(path)) {
+			try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				file.load(reader);
+			}
+		} else if (System.getProperty("config") != null) {
+			throw new IOException("Configuration file " + path + " does not exist");
+		}
+
+		String profile = System.getProperty("profile", file.getProperty("profile"));
+		if (profile != null) {
+			Properties preset = new Properties();
+			try (InputStream stream = Settings.class
+					.getResourceAsStream(profilesPath + profile + ".properties")) {
+				if (stream == null) {
+					throw new IOException("Unknown profile " + profile);
+				}
+				preset.load(stream);
+			}
+			for (String key : preset.stringPropertyNames()) {
+				if (!file.containsKey(key)) {
+					file.setProperty(key, preset.getProperty(key));
+				}
+			}
+		}
+
+		for (String key : file.stringPropertyNames()) {
+			if (System.getProperty(key) == null) {
+				System.setProperty(key, file.getProperty(key).trim());
+			}
+		}
+		check("store.directory", "fs|mmap|nio");
+		check("writer.mergePolicy", "tiered|logbyte");
+		check("writer.compression", "BEST_SPEED|BEST_COMPRESSION");
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.equals("filter.maxSizeMB") || key.startsWith("filter.maxSizeMB.")) {
+				check(key, "\\d+");
+			}
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy ustawienie ma jedną z dozwolonych wartości.
+	 * 
+	 * @param key    nazwa ustawienia
+	 * @param values wyrażenie regularne opisujące dozwolone wartości
+	 * @throws IOException wyjątek zgłaszany, gdy wartość jest niedozwolona
+	 */
+	private static void check(String key, String values) throws IOException {
+		String value = System.getProperty(key);
+		if (value != null && !value.matches(values)) {
+			throw new IOException("Wrong value " + value + " of " + key);
+		}
+	}
+
+	/**
+	 * Metoda otwierająca katalog indeksu w sposób wybrany w ustawieniach
+	 * store.directory i store.nrtCache.
+	 * 
+	 * @param path ścieżka do katalogu indeksu
+	 * @return katalog indeksu
+	 * @throws IOException
+	 */
+	public static Directory openDirectory(Path path) throws IOException {
+		String type = System.getProperty("store.directory", "fs");
+		Directory directory;
+		if (type.equals("mmap")) {
+			directory = new MMapDirectory(path);
+		} else if (type.equals("nio")) {
+			directory = new NIOFSDirectory(path);
+		} else if (type.equals("fs")) {
+			directory = FSDirectory.open(path);
+		} else {
+			throw new IllegalArgumentException("Unknown store.directory " + type);
+		}
+
+		if (Boolean.getBoolean("store.nrtCache")) {
+			directory = new NRTCachingDirectory(directory,
+					doubleSetting("store.nrtMaxMergeMB", 5),
+					doubleSetting("store.nrtMaxCachedMB", 60));
+		}
+		return directory;
+	}
+
+	/**
+	 * Metoda tworząca konfigurację obiektu IndexWriter według ustawień writer.*.
+	 * Nieustawione wartości pozostają domyślne dla Lucene.
+	 * 
+	 * @param analyzer obiekt klasy Analyzer
+	 * @return konfiguracja obiektu IndexWriter
+	 */
+	public static IndexWriterConfig writerConfig(Analyzer analyzer) {
+		IndexWriterConfig config = new IndexWriterConfig(analyzer);
+		config.setRAMBufferSizeMB(doubleSetting("writer.ramBufferMB",
+				IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB));
+
+		String policy = System.getProperty("writer.mergePolicy", "tiered");
+		MergePolicy mergePolicy;
+		if (policy.equals("tiered")) {
+			TieredMergePolicy tiered = new TieredMergePolicy();
+			tiered.setSegmentsPerTier(doubleSetting("writer.segmentsPerTier",
+					tiered.getSegmentsPerTier()));
+			tiered.setMaxMergedSegmentMB(doubleSetting("writer.maxMergedSegmentMB",
+					tiered.getMaxMergedSegmentMB()));
+			mergePolicy = tiered;
+		} else if (policy.equals("logbyte")) {
+			LogByteSizeMergePolicy logByte = new LogByteSizeMergePolicy();
+			logByte.setMaxMergeMB(doubleSetting("writer.maxMergedSegmentMB",
+					logByte.getMaxMergeMB()));
+			mergePolicy = logByte;
+		} else {
+			throw new IllegalArgumentException("Unknown writer.mergePolicy " + policy);
+		}
+		String compoundFile = System.getProperty("writer.compoundFile");
+		if (compoundFile != null) {
+			mergePolicy.setNoCFSRatio(Boolean.parseBoolean(compoundFile) ? 1.0 : 0.0);
+			config.setUseCompoundFile(Boolean.parseBoolean(compoundFile));
+		}
+		config.setMergePolicy(mergePolicy);
+
+		int mergeThreads = Integer.getInteger("writer.mergeThreads", 0);
+		if (mergeThreads > 0) {
+			ConcurrentMergeScheduler scheduler = new ConcurrentMergeScheduler();
+			scheduler.setMaxMergesAndThreads(mergeThreads + 5, mergeThreads);
+			config.setMergeScheduler(scheduler);
+		}
+
+		String compression = System.getProperty("writer.compression", "BEST_SPEED");
+		config.setCodec(new Lucene80Codec(Lucene50StoredFieldsFormat.Mode.valueOf(compression)));
+		return config;
+	}
+
+	/**
+	 * Metoda dająca w wyniku ustawienie liczbowe.
+	 * 
+	 * @param key          nazwa ustawienia
+	 * @param defaultValue wartość domyślna
+	 * @return wartość ustawienia
+	 */
+	private static double doubleSetting(String key, double defaultValue) {
+		String value = System.getProperty(key);
+		return (value == null) ? defaultValue : Double.parseDouble(value);
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * Pakiet ten zawiera klasy wspólne dla indeksera i wyszukiwarki: wczytywanie
+ * ustawień z pliku config.properties i profili oraz tworzenie na ich
+ * podstawie katalogów indeksu i konfiguracji obiektów IndexWriter.
+ */
+package common;
\ No newline at end of file
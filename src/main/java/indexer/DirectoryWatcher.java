@@ -49,8 +49,10 @@ import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +69,45 @@ public class DirectoryWatcher {
 	private final boolean recursive;
 	private boolean trace = false;
 
+	/**
+	 * Czas (w milisekundach), przez jaki zbierane są wydarzenia przed ich
+	 * wspólnym zastosowaniem.
+	 */
+	private final long batchWindow = Long.getLong("watcher.window", 500);
+
+	/**
+	 * Maksymalny czas (w milisekundach) między zastosowaniem zmian a ich
+	 * zatwierdzeniem.
+	 */
+	private final long commitInterval = Long.getLong("watcher.commitInterval", 5000);
+
+	/**
+	 * Liczba niezatwierdzonych zmian, po której zmiany są zatwierdzane
+	 * natychmiast.
+	 */
+	private final int maxChanges = Integer.getInteger("watcher.maxChanges", 1000);
+
+	/**
+	 * Zebrane, jeszcze niezastosowane zmiany: ścieżka i rodzaj wydarzenia, w
+	 * kolejności pojawienia się.
+	 */
+	private final Map<Path, WatchEvent.Kind<?>> pending = new LinkedHashMap<Path, WatchEvent.Kind<?>>();
+
+	/**
+	 * Czas, w którym należy zastosować zebrane zmiany.
+	 */
+	private long batchDeadline;
+
+	/**
+	 * Liczba zastosowanych, ale niezatwierdzonych zmian.
+	 */
+	private int uncommitted = 0;
+
+	/**
+	 * Czas, w którym należy zatwierdzić zastosowane zmiany.
+	 */
+	private long commitDeadline;
+
 	@SuppressWarnings("unchecked")
 	static <T> WatchEvent<T> cast(WatchEvent<?> event) {
 		return (WatchEvent<T>) event;
@@ -118,7 +159,7 @@ public class DirectoryWatcher {
 	 */
 	public DirectoryWatcher(Path dir, boolean recursive) throws IOException {
 		this.watcher = FileSystems.getDefault().newWatchService();
-		this.keys = new HashMap<WatchKey, Path>();
+		this.keys = new ConcurrentHashMap<WatchKey, Path>();
 		this.recursive = recursive;
 
 		BufferedReader reader = new BufferedReader(new FileReader(dir.toFile()));
@@ -142,66 +183,205 @@ public class DirectoryWatcher {
 	}
 
 	/**
-	 * Metoda odpowiedzialna za przetważanie wydarzeń.
+	 * Metoda rozpoczynająca obserwowanie podanego katalogu dodanego do indeksu.
 	 * 
-	 * @param availableLanguages obiekt klasy Languages zawierający dostępne języki.
+	 * @param dir ścieżka do katalogu
 	 * @throws IOException
 	 */
-	void processEvents(Languages availableLanguages) throws IOException {
-		while (true) {
-			WatchKey key;
-			try {
-				key = watcher.take();
-			} catch (InterruptedException x) {
-				return;
-			}
-
-			Path dir = keys.get(key);
-			if (dir == null) {
-				logger.warn("WatchKey not recognized!!");
-				continue;
-			}
-
-			for (WatchEvent<?> event : key.pollEvents()) {
-				WatchEvent.Kind<?> kind = event.kind();
+	void watch(Path dir) throws IOException {
+		if (recursive) {
+			registerAll(dir);
+		} else {
+			register(dir);
+		}
+	}
 
-				WatchEvent<Path> ev = cast(event);
-				Path name = ev.context();
-				Path child = dir.resolve(name);
+	/**
+	 * Metoda odpowiedzialna za przetważanie wydarzeń, działająca do przerwania
+	 * wątku. Zmiany indeksu wykonywane są przez wątek zapisu procesu
+	 * indeksera. Wydarzenia zbierane są przez określony czas, a wielokrotne
+	 * wydarzenia dotyczące tej samej ścieżki są łączone. Zmiany zatwierdzane są
+	 * co określony czas lub po określonej liczbie zmian.
+	 * 
+	 * @param daemon             proces indeksera, którego wątek zapisu stosuje
+	 *                           zmiany
+	 * @param availableLanguages obiekt klasy Languages zawierający dostępne języki.
+	 * @throws IOException
+	 */
+	void processEvents(IndexerDaemon daemon, Languages availableLanguages) throws IOException {
+		try {
+			while (true) {
+				WatchKey key;
+				try {
+					key = nextKey(daemon, availableLanguages);
+				} catch (InterruptedException x) {
+					return;
+				}
+				if (key == null) {
+					continue;
+				}
 
-				Indexer indexer = new Indexer();
-				if (kind == OVERFLOW) {
+				Path dir = keys.get(key);
+				if (dir == null) {
+					logger.warn("WatchKey not recognized!!");
 					continue;
-				} else if (kind == ENTRY_CREATE) {
-					indexer.indexDocuments(child, availableLanguages);
-				} else if (kind == ENTRY_DELETE) {
-					indexer.removeDocuments(child.toString());
-				} else if (kind == ENTRY_MODIFY) {
-					indexer.removeDocuments(child.toString());
-					indexer.indexDocuments(child, availableLanguages);
 				}
-				indexer.closeIndexWriters();
 
-				logger.info("{}: {}", event.kind().name(), child);
+				for (WatchEvent<?> event : key.pollEvents()) {
+					WatchEvent.Kind<?> kind = event.kind();
+					if (kind == OVERFLOW) {
+						continue;
+					}
 
-				if (recursive && (kind == ENTRY_CREATE)) {
-					try {
-						if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
-							registerAll(child);
-						}
-					} catch (IOException x) {
+					WatchEvent<Path> ev = cast(event);
+					Path name = ev.context();
+					Path child = dir.resolve(name);
+					addPending(child, kind);
+
+					if (recursive && (kind == ENTRY_CREATE)) {
+						try {
+							if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
+								registerAll(child);
+							}
+						} catch (IOException x) {
 
+						}
 					}
 				}
+
+				if (pending.size() >= maxChanges) {
+					daemon.write(indexer -> applyPending(indexer, availableLanguages));
+				}
+
+				boolean valid = key.reset();
+				if (!valid) {
+					keys.remove(key);
+				}
 			}
+		} finally {
+			daemon.write(indexer -> {
+				applyPending(indexer, availableLanguages);
+				if (uncommitted > 0) {
+					commit(indexer);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Metoda czekająca na kolejny klucz z wydarzeniami. Jeśli w międzyczasie mija
+	 * czas zastosowania zebranych zmian lub ich zatwierdzenia, wykonuje te
+	 * operacje i daje w wyniku null.
+	 * 
+	 * @param daemon             proces indeksera, którego wątek zapisu stosuje
+	 *                           zmiany
+	 * @param availableLanguages obiekt klasy Languages zawierający dostępne języki
+	 * @return klucz z wydarzeniami lub null
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	private WatchKey nextKey(IndexerDaemon daemon, Languages availableLanguages)
+			throws InterruptedException, IOException {
+		long deadline = Long.MAX_VALUE;
+		if (!pending.isEmpty()) {
+			deadline = batchDeadline;
+		}
+		if (uncommitted > 0) {
+			deadline = Math.min(deadline, commitDeadline);
+		}
+		if (deadline == Long.MAX_VALUE) {
+			return watcher.take();
+		}
+
+		long timeout = deadline - System.currentTimeMillis();
+		WatchKey key = (timeout > 0) ? watcher.poll(timeout, TimeUnit.MILLISECONDS) : null;
+		if (key == null) {
+			long now = System.currentTimeMillis();
+			if (!pending.isEmpty() && now >= batchDeadline) {
+				daemon.write(indexer -> applyPending(indexer, availableLanguages));
+			}
+			if (uncommitted > 0 && now >= commitDeadline) {
+				daemon.write(this::commit);
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Metoda dodająca wydarzenie do zebranych zmian, łącząc je z wcześniejszym
+	 * wydarzeniem dotyczącym tej samej ścieżki: utworzenie i modyfikacja dają
+	 * utworzenie, a w pozostałych przypadkach późniejsze wydarzenie zastępuje
+	 * wcześniejsze.
+	 * 
+	 * @param path ścieżka, której dotyczy wydarzenie
+	 * @param kind rodzaj wydarzenia
+	 */
+	void addPending(Path path, WatchEvent.Kind<?> kind) {
+		if (pending.isEmpty()) {
+			batchDeadline = System.currentTimeMillis() + batchWindow;
+		}
 
-			boolean valid = key.reset();
-			if (!valid) {
-				keys.remove(key);
-				if (keys.isEmpty()) {
-					break;
+		WatchEvent.Kind<?> previous = pending.get(path);
+		if (previous == ENTRY_CREATE && kind == ENTRY_MODIFY) {
+			kind = ENTRY_CREATE;
+		}
+		pending.put(path, kind);
+	}
+
+	/**
+	 * Metoda stosująca w indeksie wszystkie zebrane zmiany. Utworzona ścieżka
+	 * zastępuje wszystko, co było wcześniej zaindeksowane pod nią, zmodyfikowane
+	 * pliki są aktualizowane, a modyfikacje katalogów są pomijane, ponieważ
+	 * zmiany ich zawartości zgłaszane są osobno. Zmiany są zatwierdzane, jeśli
+	 * minął czas zatwierdzenia lub uzbierało się ich wystarczająco dużo.
+	 * 
+	 * @param indexer            obiekt klasy Indexer
+	 * @param availableLanguages obiekt klasy Languages zawierający dostępne języki
+	 * @throws IOException
+	 */
+	void applyPending(Indexer indexer, Languages availableLanguages) throws IOException {
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		for (Map.Entry<Path, WatchEvent.Kind<?>> change : pending.entrySet()) {
+			Path child = change.getKey();
+			WatchEvent.Kind<?> kind = change.getValue();
+
+			if (kind == ENTRY_CREATE) {
+				indexer.removeDocuments(child.toString());
+				indexer.indexDocuments(child, availableLanguages);
+			} else if (kind == ENTRY_DELETE) {
+				indexer.removeDocuments(child.toString());
+			} else if (kind == ENTRY_MODIFY) {
+				if (!Files.isDirectory(child, NOFOLLOW_LINKS)) {
+					indexer.indexDocuments(child, availableLanguages);
 				}
 			}
+
+			logger.info("{}: {}", kind.name(), child);
+		}
+
+		if (uncommitted == 0) {
+			commitDeadline = System.currentTimeMillis() + commitInterval;
 		}
+		uncommitted += pending.size();
+		pending.clear();
+
+		if (uncommitted >= maxChanges || System.currentTimeMillis() >= commitDeadline) {
+			commit(indexer);
+		}
+	}
+
+	/**
+	 * Metoda zatwierdzająca zastosowane zmiany.
+	 * 
+	 * @param indexer obiekt klasy Indexer
+	 * @throws IOException
+	 */
+	private void commit(Indexer indexer) throws IOException {
+		indexer.commit();
+		logger.info("Committed {} changes", uncommitted);
+		uncommitted = 0;
 	}
 }
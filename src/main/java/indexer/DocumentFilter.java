@@ -0,0 +1,292 @@
+package indexer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MimeTypes;
+
+/**
+ * Klasa odpowiadająca za wstępne odrzucanie plików, które nie zawierają
+ * użytecznego tekstu, zanim trafią do parsera. Reguły sprawdzane są od
+ * najtańszych: najpierw ścieżka, potem rozmiar, a na końcu typ MIME wykrywany
+ * na podstawie nazwy pliku. Nagłówek pliku (najwyżej 64 KB) czytany jest tylko
+ * wtedy, gdy nazwa nie wystarcza do ustalenia typu.
+ * 
+ * Ustawienia (listy rozdzielane przecinkami):
+ * <ul>
+ * <li>filter.include - wzorce glob plików do indeksowania (domyślnie
+ * wszystkie),</li>
+ * <li>filter.exclude - wzorce glob plików pomijanych (domyślnie katalogi
+ * systemów kontroli wersji),</li>
+ * <li>filter.allow - typy MIME do indeksowania (domyślnie wszystkie),</li>
+ * <li>filter.deny - typy MIME pomijane (domyślnie nagrania, pliki
+ * wykonywalne, archiwa Javy i obrazy płyt),</li>
+ * <li>filter.maxSizeMB - maksymalny rozmiar pliku,</li>
+ * <li>filter.maxSizeMB.&lt;typ MIME&gt; - maksymalny rozmiar pliku danego
+ * typu.</li>
+ * </ul>
+ * Wzorzec glob bez znaku / dopasowywany jest do nazwy pliku, a pozostałe do
+ * całej ścieżki. Katalogi pasujące do wzorca pomijanych plików postaci
+ * katalog/** nie są w ogóle przeglądane. Typ MIME postaci video/* obejmuje
+ * wszystkie podtypy.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class DocumentFilter {
+	/**
+	 * Domyślne wzorce plików pomijanych.
+	 */
+	private static final String defaultExclude = "**/.git/**,**/.svn/**,**/.hg/**";
+
+	/**
+	 * Domyślne typy MIME pomijane.
+	 */
+	private static final String defaultDeny = "video/*,audio/*,application/java-archive,"
+			+ "application/x-iso9660-image,application/x-executable,application/x-sharedlib,"
+			+ "application/x-msdownload";
+
+	/**
+	 * Przedrostek ustawień maksymalnego rozmiaru plików danego typu.
+	 */
+	private static final String maxSizePrefix = "filter.maxSizeMB.";
+
+	/**
+	 * Klasa opisująca wzorzec glob wraz z jego treścią.
+	 */
+	private static class Glob {
+		/**
+		 * Treść wzorca.
+		 */
+		final String pattern;
+
+		/**
+		 * Obiekt dopasowujący ścieżki do wzorca.
+		 */
+		final PathMatcher matcher;
+
+		/**
+		 * Informacja, czy wzorzec dopasowywany jest tylko do nazwy pliku.
+		 */
+		final boolean fileName;
+
+		/**
+		 * Obiekt dopasowujący katalogi, których cała zawartość pasuje do wzorca
+		 * postaci katalog/**, lub null dla pozostałych wzorców.
+		 */
+		final PathMatcher directory;
+
+		/**
+		 * Konstruktor klasy Glob.
+		 * 
+		 * @param pattern treść wzorca
+		 */
+		Glob(String pattern) {
+			this.pattern = pattern;
+			this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+			this.fileName = !pattern.contains("/");
+			String prefix = pattern.endsWith("/**")
+					? pattern.substring(0, pattern.length() - "/**".length())
+					: "";
+			this.directory = prefix.isEmpty() ? null
+					: FileSystems.getDefault().getPathMatcher("glob:" + prefix);
+		}
+
+		/**
+		 * Metoda sprawdzająca, czy ścieżka pasuje do wzorca.
+		 * 
+		 * @param file ścieżka do pliku
+		 * @return true, jeśli ścieżka pasuje
+		 */
+		boolean matches(Path file) {
+			return matcher.matches(fileName ? file.getFileName() : file);
+		}
+	}
+
+	/**
+	 * Wzorce plików do indeksowania.
+	 */
+	private final List<Glob> include = globs("filter.include", "");
+
+	/**
+	 * Wzorce plików pomijanych.
+	 */
+	private final List<Glob> exclude = globs("filter.exclude", defaultExclude);
+
+	/**
+	 * Typy MIME do indeksowania.
+	 */
+	private final List<String> allow = list("filter.allow", "");
+
+	/**
+	 * Typy MIME pomijane.
+	 */
+	private final List<String> deny = list("filter.deny", defaultDeny);
+
+	/**
+	 * Maksymalny rozmiar pliku w bajtach; 0 oznacza brak limitu.
+	 */
+	private final long maxSize = 1024 * 1024 * Long.getLong("filter.maxSizeMB", 0);
+
+	/**
+	 * Maksymalne rozmiary plików w bajtach według typów MIME.
+	 */
+	private final Map<String, Long> maxSizes = new LinkedHashMap<String, Long>();
+
+	/**
+	 * Detektor typów MIME na podstawie nazwy lub nagłówka pliku.
+	 */
+	private final MimeTypes mimeTypes = MimeTypes.getDefaultMimeTypes();
+
+	/**
+	 * Konstruktor klasy DocumentFilter wczytujący reguły z ustawień.
+	 */
+	public DocumentFilter() {
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith(maxSizePrefix)) {
+				maxSizes.put(key.substring(maxSizePrefix.length()),
+						1024 * 1024 * Long.parseLong(System.getProperty(key).trim()));
+			}
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy całą zawartość katalogu należy pominąć bez
+	 * przeglądania.
+	 * 
+	 * @param dir ścieżka do katalogu
+	 * @return true, jeśli katalog pasuje do wzorca pomijanych plików postaci
+	 *         katalog/**
+	 */
+	boolean skipDirectory(Path dir) {
+		for (Glob glob : exclude) {
+			if (glob.directory != null && glob.directory.matches(dir)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy plik należy pominąć.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return nazwa reguły, która odrzuciła plik, lub null, jeśli plik należy
+	 *         zaindeksować
+	 * @throws IOException
+	 */
+	String skip(Path file) throws IOException {
+		for (Glob glob : exclude) {
+			if (glob.matches(file)) {
+				return "exclude " + glob.pattern;
+			}
+		}
+		if (!include.isEmpty() && include.stream().noneMatch(glob -> glob.matches(file))) {
+			return "include";
+		}
+		if (maxSize == 0 && maxSizes.isEmpty() && allow.isEmpty() && deny.isEmpty()) {
+			return null;
+		}
+
+		long size = Files.size(file);
+		if (maxSize > 0 && size > maxSize) {
+			return "maxSize";
+		}
+		if (maxSizes.isEmpty() && allow.isEmpty() && deny.isEmpty()) {
+			return null;
+		}
+
+		String type = detectType(file);
+		for (String denied : deny) {
+			if (matches(denied, type)) {
+				return "deny " + denied;
+			}
+		}
+		if (!allow.isEmpty() && allow.stream().noneMatch(allowed -> matches(allowed, type))) {
+			return "allow";
+		}
+		for (Map.Entry<String, Long> limit : maxSizes.entrySet()) {
+			if (size > limit.getValue() && matches(limit.getKey(), type)) {
+				return "maxSize " + limit.getKey();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Metoda wykrywająca typ MIME pliku na podstawie nazwy, a jeśli nazwa nie
+	 * wskazuje typu, także nagłówka pliku.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return typ MIME pliku
+	 * @throws IOException
+	 */
+	private String detectType(Path file) throws IOException {
+		Metadata metadata = new Metadata();
+		metadata.set(Metadata.RESOURCE_NAME_KEY, file.getFileName().toString());
+		String type = mimeTypes.detect(null, metadata).getBaseType().toString();
+		if (!type.equals(MimeTypes.OCTET_STREAM)) {
+			return type;
+		}
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+			return mimeTypes.detect(stream, metadata).getBaseType().toString();
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy typ MIME pasuje do wzorca postaci typ/podtyp lub
+	 * typ/*.
+	 * 
+	 * @param pattern wzorzec typu
+	 * @param type    typ MIME
+	 * @return true, jeśli typ pasuje
+	 */
+	private static boolean matches(String pattern, String type) {
+		if (pattern.endsWith("/*")) {
+			return type.startsWith(pattern.substring(0, pattern.length() - 1));
+		}
+		return type.equals(pattern);
+	}
+
+	/**
+	 * Metoda dająca w wyniku listę wartości ustawienia rozdzielanych przecinkami.
+	 * 
+	 * @param key          nazwa ustawienia
+	 * @param defaultValue wartość domyślna
+	 * @return lista wartości
+	 */
+	private static List<String> list(String key, String defaultValue) {
+		List<String> values = new ArrayList<String>();
+		for (String value : System.getProperty(key, defaultValue).split(",")) {
+			if (!value.trim().isEmpty()) {
+				values.add(value.trim());
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Metoda dająca w wyniku listę wzorców glob z ustawienia.
+	 * 
+	 * @param key          nazwa ustawienia
+	 * @param defaultValue wartość domyślna
+	 * @return lista wzorców
+	 */
+	private static List<Glob> globs(String key, String defaultValue) {
+		List<Glob> globs = new ArrayList<Glob>();
+		for (String pattern : list(key, defaultValue)) {
+			globs.add(new Glob(pattern));
+		}
+		return globs;
+	}
+}
@@ -0,0 +1,694 @@
+package indexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongPredicate;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.io.TemporaryResources;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.langdetect.OptimaizeLangDetector;
+import org.apache.tika.language.detect.LanguageDetector;
+import org.apache.tika.language.detect.LanguageResult;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Klasa odpowiadająca za długo żyjący silnik ekstrakcji tekstu, współdzielony
+ * przez wątki indeksujące.
+ * 
+ * Parser jest bezstanowy, więc jedna instancja obsługuje wszystkie wątki.
+ * Detektory języka przechowują tekst dokumentu, dlatego trzymane są w puli:
+ * każdy z nich wczytuje modele językowe tylko raz, przy utworzeniu, a przed
+ * kolejnym dokumentem jest jedynie resetowany.
+ * 
+ * Parsowanie jednego dokumentu trwa najwyżej extractor.parseTimeoutMs
+ * milisekund; po tym czasie jest przerywane i zgłaszany jest wyjątek
+ * ParseTimeoutException. Dokumenty typów MIME wymienionych w
+ * extractor.forkTypes parsowane są w osobnych procesach JVM, tak aby
+ * zawieszenie lub awaria parsera nie wpływały na indekser.
+ * 
+ * Silnik należy zamknąć po zakończeniu pracy, co zwalnia jego wątki i procesy
+ * potomne.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class ExtractionEngine implements Closeable {
+	/**
+	 * Parser wykrywający format dokumentu.
+	 */
+	private final AutoDetectParser parser;
+
+	/**
+	 * Języki, których modele wczytują detektory.
+	 */
+	private final Set<String> languages;
+
+	/**
+	 * Pula wolnych detektorów języka.
+	 */
+	private final BlockingQueue<LanguageDetector> detectors;
+
+	/**
+	 * Liczniki, w których odnotowywane są czasy parsowania i wykrywania języka.
+	 */
+	private final IndexerStats stats;
+
+	/**
+	 * Maksymalna liczba znaków tekstu wyekstraktowanego z jednego dokumentu;
+	 * wartość ujemna oznacza brak limitu. Nadmiarowy tekst jest pomijany.
+	 */
+	private final int writeLimit = Integer.getInteger("extractor.writeLimit", -1);
+
+	/**
+	 * Rozmiar pliku w bajtach, od którego tekst jest ekstraktowany strumieniowo.
+	 */
+	private final long streamingThreshold = Long.getLong("extractor.streamingThreshold",
+			4 * 1024 * 1024);
+
+	/**
+	 * Liczba znaków z początku tekstu używanych do wykrycia języka i
+	 * przechowywanych w indeksie przy ekstrakcji strumieniowej.
+	 */
+	private final int sampleSize = Integer.getInteger("extractor.sampleSize", 64 * 1024);
+
+	/**
+	 * Liczba znaków tekstu używanych do wykrycia języka; wartość niedodatnia
+	 * oznacza wykrywanie na podstawie całego tekstu.
+	 */
+	private final int detectionSample = Integer.getInteger("extractor.detectionSample", 10000);
+
+	/**
+	 * Liczba równomiernie rozłożonych fragmentów tekstu, z których składa się
+	 * próbka do wykrycia języka. Krótkie fragmenty w dużej liczbie sprawiają,
+	 * że akapit w innym języku nie przesądza o wyniku.
+	 */
+	private final int detectionWindows = Math.max(1,
+			Integer.getInteger("extractor.detectionWindows", 32));
+
+	/**
+	 * Pewność wykrycia języka na podstawie połowy fragmentów próbki, po
+	 * osiągnięciu której pozostałe fragmenty nie są już analizowane.
+	 */
+	private final float detectionConfidence = Float.parseFloat(
+			System.getProperty("extractor.detectionConfidence", "0.95"));
+
+	/**
+	 * Rozmiar bufora łącza między parserem a indekserem w znakach.
+	 */
+	private static final int pipeSize = 64 * 1024;
+
+	/**
+	 * Maksymalny czas parsowania jednego dokumentu w milisekundach; wartość
+	 * niedodatnia wyłącza limit.
+	 */
+	private final long parseTimeout = Long.getLong("extractor.parseTimeoutMs", 60000);
+
+	/**
+	 * Typy MIME dokumentów parsowanych w osobnych procesach, podawane po
+	 * przecinku we właściwości extractor.forkTypes.
+	 */
+	private final Set<String> forkTypes = new HashSet<String>();
+
+	/**
+	 * Parser uruchamiający parsowanie w osobnych procesach JVM lub null, gdy
+	 * żaden typ nie jest tak parsowany.
+	 */
+	private final ForkParser forkParser;
+
+	/**
+	 * Stany zadania parsowania: jeszcze nie uruchomione, w trakcie, zakończone
+	 * oraz porzucone po przekroczeniu limitu czasu.
+	 */
+	private static final int notStarted = 0, running = 1, finished = 2, abandoned = 3;
+
+	/**
+	 * Wątki parsujące dokumenty. Wątek parsera, który przekroczył limit czasu i
+	 * nie zareagował na przerwanie, zostaje porzucony, a kolejne dokumenty
+	 * parsują nowe wątki.
+	 */
+	private final ExecutorService parsingThreads = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "extractor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Wątek przerywający ekstrakcję strumieniową po przekroczeniu limitu czasu.
+	 */
+	private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1,
+			runnable -> {
+				Thread thread = new Thread(runnable, "parse-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * Konstruktor klasy ExtractionEngine.
+	 * 
+	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 * @throws IOException
+	 */
+	public ExtractionEngine(Languages availableLanguages) throws IOException {
+		this(availableLanguages, new IndexerStats());
+	}
+
+	/**
+	 * Konstruktor klasy ExtractionEngine odnotowujący czasy ekstrakcji w podanych
+	 * licznikach.
+	 * 
+	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 * @param stats              liczniki indeksowania
+	 * @throws IOException
+	 */
+	ExtractionEngine(Languages availableLanguages, IndexerStats stats) throws IOException {
+		this.stats = stats;
+		this.parser = new AutoDetectParser();
+		this.languages = availableLanguages.languages();
+		this.detectors = new LinkedBlockingQueue<LanguageDetector>();
+		detectors.add(newDetector());
+		watchdog.setRemoveOnCancelPolicy(true);
+
+		for (String type : System.getProperty("extractor.forkTypes", "").split(",")) {
+			if (!type.trim().isEmpty()) {
+				forkTypes.add(type.trim());
+			}
+		}
+		if (forkTypes.isEmpty()) {
+			forkParser = null;
+		} else {
+			forkParser = new ForkParser(ExtractionEngine.class.getClassLoader(), parser);
+			forkParser.setJavaCommand(Arrays.asList(
+					Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+					"-Xmx" + Integer.getInteger("extractor.forkHeapMB", 256) + "m"));
+			forkParser.setPoolSize(Integer.getInteger("extractor.forkProcesses", 2));
+			if (parseTimeout > 0) {
+				// Proces potomny kończy się sam, gdyby przerwanie nie dotarło.
+				forkParser.setServerParseTimeoutMillis(2 * parseTimeout);
+			}
+		}
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst i jego język z podanego strumienia.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @return obiekt klasy Extractor z wynikiem ekstrakcji
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	public Extractor extract(InputStream stream) throws IOException, SAXException, TikaException {
+		return new Extractor(stream, this);
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst z podanego strumienia pliku o podanym rozmiarze.
+	 * Duże pliki ekstraktowane są strumieniowo: tekst nie jest trzymany w
+	 * pamięci w całości, a język wykrywany jest na podstawie próbki z jego
+	 * początku.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param size   rozmiar pliku w bajtach
+	 * @return obiekt klasy Extractor z wynikiem ekstrakcji
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	public Extractor extract(InputStream stream, long size)
+			throws IOException, SAXException, TikaException {
+		return extract(stream, size, chars -> true);
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst z podanego strumienia pliku o podanym
+	 * rozmiarze, jak metoda extract(InputStream, long). Przy ekstrakcji do
+	 * pamięci budżet sprawdzany jest w miarę przybywania tekstu, dzięki czemu
+	 * plik skompresowany, którego tekst jest wielokrotnie większy od pliku, nie
+	 * przekracza pamięci przewidzianej na tekst.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param size   rozmiar pliku w bajtach
+	 * @param budget warunek, który musi spełniać liczba znaków tekstu
+	 *               trzymanego w pamięci
+	 * @return obiekt klasy Extractor z wynikiem ekstrakcji
+	 * @throws TextBudgetException gdy tekst nie zmieścił się w budżecie
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	public Extractor extract(InputStream stream, long size, LongPredicate budget)
+			throws IOException, SAXException, TikaException {
+		if (size < streamingThreshold) {
+			return new Extractor(stream, this, budget);
+		}
+		return extractStreaming(stream);
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst z podanego strumienia strumieniowo, niezależnie
+	 * od rozmiaru pliku.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @return obiekt klasy Extractor z wynikiem ekstrakcji
+	 * @throws IOException
+	 */
+	public Extractor extractStreaming(InputStream stream) throws IOException {
+		return new Extractor(parseStreaming(stream), this);
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst z podanego strumienia. Po przekroczeniu limitu
+	 * czasu wątek parsera jest przerywany, a strumień zamykany, co kończy
+	 * parsowanie czekające na dane.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @return wyekstraktowany tekst
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	String parse(InputStream stream) throws IOException, SAXException, TikaException {
+		return parse(stream, chars -> true);
+	}
+
+	/**
+	 * Metoda ekstraktująca tekst z podanego strumienia, jak metoda
+	 * parse(InputStream), przerywająca parsowanie, gdy liczba znaków tekstu nie
+	 * spełnia podanego warunku.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param budget warunek, który musi spełniać liczba znaków tekstu
+	 * @return wyekstraktowany tekst
+	 * @throws TextBudgetException gdy tekst nie zmieścił się w budżecie
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	String parse(InputStream stream, LongPredicate budget)
+			throws IOException, SAXException, TikaException {
+		WriteOutContentHandler output = new WriteOutContentHandler(new BudgetedWriter(budget),
+				writeLimit);
+		if (parseTimeout <= 0) {
+			parse(stream, output);
+			return output.toString();
+		}
+
+		AtomicInteger state = new AtomicInteger(notStarted);
+		Future<?> parsing = submitParsing(() -> {
+			parse(stream, output);
+			return null;
+		}, state);
+		try {
+			parsing.get(parseTimeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			parsing.cancel(true);
+			abandon(state);
+			stream.close();
+			throw new ParseTimeoutException("Parsing took longer than " + parseTimeout + " ms");
+		} catch (InterruptedException e) {
+			parsing.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			} else if (cause instanceof TikaException) {
+				throw (TikaException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new TikaException("Parsing failed", cause);
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Metoda uruchamiająca w osobnym wątku parsowanie podanego strumienia do
+	 * łącza i czytająca próbkę z początku tekstu. Po przekroczeniu limitu czasu
+	 * wątek nadzorujący przerywa parser i zamyka łącze, a czytanie tekstu kończy
+	 * się wyjątkiem ParseTimeoutException. Do limitu nie jest wliczany czas, w
+	 * którym parser czeka, aż indekser odczyta tekst z pełnego łącza.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @return strumień wyekstraktowanego tekstu
+	 * @throws IOException
+	 */
+	StreamingText parseStreaming(InputStream stream) throws IOException {
+		PipedReader pipe = new PipedReader(pipeSize);
+		PipedWriter writer = new PipedWriter(pipe);
+		AtomicInteger state = new AtomicInteger(notStarted);
+		AtomicBoolean timedOut = new AtomicBoolean();
+		AtomicReference<Future<?>> parsing = new AtomicReference<Future<?>>();
+		ParseDeadline deadline = null;
+		if (parseTimeout > 0) {
+			deadline = new ParseDeadline(writer, parseTimeout, watchdog, () -> {
+				if (parsing.get().cancel(true)) {
+					timedOut.set(true);
+					abandon(state);
+					try {
+						writer.close();
+					} catch (IOException e) {
+						// Łącze zostało już zamknięte.
+					}
+				}
+			});
+		}
+		Writer output = (deadline == null) ? writer : deadline;
+		parsing.set(submitParsing(() -> {
+			try (Writer text = output) {
+				parse(stream, new WriteOutContentHandler(text, writeLimit));
+			}
+			return null;
+		}, state));
+		if (deadline != null) {
+			deadline.start();
+		}
+
+		char[] sample = new char[sampleSize];
+		int length = 0;
+		int read;
+		try {
+			while (length < sampleSize
+					&& (read = pipe.read(sample, length, sampleSize - length)) != -1) {
+				length += read;
+			}
+		} catch (IOException e) {
+			pipe.close();
+			if (deadline != null) {
+				deadline.cancel();
+			}
+			throw e;
+		}
+		return new StreamingText(sample, length, pipe, parsing.get(), deadline, timedOut);
+	}
+
+	/**
+	 * Metoda uruchamiająca parsowanie w wątku parsera. Stan zadania
+	 * współdzielony jest z metodą abandon(): zadanie porzucone przed startem
+	 * nie parsuje, a zadanie kończące się po porzuceniu odnotowuje to w
+	 * licznikach, dzięki czemu liczba porzuconych wątków obejmuje tylko te,
+	 * które wciąż działają.
+	 * 
+	 * @param task  zadanie parsowania
+	 * @param state stan zadania, początkowo notStarted
+	 * @return wynik zadania parsowania
+	 */
+	private Future<?> submitParsing(Callable<Void> task, AtomicInteger state) {
+		return parsingThreads.submit(() -> {
+			if (!state.compareAndSet(notStarted, running)) {
+				return null;
+			}
+			try {
+				return task.call();
+			} finally {
+				if (!state.compareAndSet(running, finished)) {
+					stats.abandonedParserFinished();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Metoda porzucająca przerwane po przekroczeniu limitu czasu zadanie
+	 * parsowania. Wątek, który je wykonuje, jest odnotowywany w licznikach do
+	 * czasu zakończenia pracy.
+	 * 
+	 * @param state stan zadania przekazany do metody submitParsing()
+	 */
+	private void abandon(AtomicInteger state) {
+		if (state.compareAndSet(running, abandoned)) {
+			stats.parserAbandoned();
+		} else {
+			state.compareAndSet(notStarted, abandoned);
+		}
+	}
+
+	/**
+	 * Metoda parsująca strumień do podanego obiektu zbierającego tekst.
+	 * Przekroczenie limitu tekstu nie jest traktowane jako błąd. Dokumenty typów
+	 * z extractor.forkTypes przekazywane są do procesu potomnego.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param output obiekt zbierający wyekstraktowany tekst
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	private void parse(InputStream stream, WriteOutContentHandler output)
+			throws IOException, SAXException, TikaException {
+		long start = System.nanoTime();
+		try (TemporaryResources temporary = new TemporaryResources()) {
+			Metadata metadata = new Metadata();
+			if (forkParser != null) {
+				stream = TikaInputStream.get(stream, temporary);
+				String type = parser.getDetector().detect(stream, metadata).getBaseType().toString();
+				if (forkTypes.contains(type)) {
+					forkParser.parse(stream, new BodyContentHandler(output), metadata,
+							new ParseContext());
+					return;
+				}
+			}
+			parser.parse(stream, new BodyContentHandler(output), metadata);
+		} catch (SAXException | TikaException e) {
+			for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof TextBudgetException) {
+					throw (TextBudgetException) cause;
+				}
+			}
+			if (!(e instanceof SAXException && output.isWriteLimitReached(e))) {
+				throw e;
+			}
+		} finally {
+			stats.parsed(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Klasa zbierająca tekst w pamięci i sprawdzająca budżet, zanim tekst
+	 * przekroczy dotychczas sprawdzony rozmiar. Budżet sprawdzany jest co
+	 * najmniej co step znaków, aby nie robić tego przy każdym zapisie.
+	 */
+	private static class BudgetedWriter extends Writer {
+		/**
+		 * Minimalny przyrost sprawdzanego rozmiaru tekstu w znakach.
+		 */
+		private static final int step = 64 * 1024;
+
+		/**
+		 * Zebrany tekst.
+		 */
+		private final StringBuilder text = new StringBuilder();
+
+		/**
+		 * Warunek, który musi spełniać liczba znaków tekstu.
+		 */
+		private final LongPredicate budget;
+
+		/**
+		 * Liczba znaków, dla której budżet został sprawdzony.
+		 */
+		private long allowed = 0;
+
+		/**
+		 * Konstruktor klasy BudgetedWriter.
+		 * 
+		 * @param budget warunek, który musi spełniać liczba znaków tekstu
+		 */
+		BudgetedWriter(LongPredicate budget) {
+			this.budget = budget;
+		}
+
+		/**
+		 * Nadpisana metoda dopisująca fragment tekstu, o ile tekst razem z nim
+		 * mieści się w budżecie.
+		 */
+		@Override
+		public void write(char[] buffer, int offset, int length) throws IOException {
+			long needed = (long) text.length() + length;
+			if (needed > allowed) {
+				long next = Math.max(needed, allowed + step);
+				if (!budget.test(next)) {
+					throw new TextBudgetException(
+							"Text of " + needed + " characters exceeds the memory budget");
+				}
+				allowed = next;
+			}
+			text.append(buffer, offset, length);
+		}
+
+		/**
+		 * Nadpisana metoda opróżniająca bufor; tekst trzymany jest w pamięci.
+		 */
+		@Override
+		public void flush() {
+		}
+
+		/**
+		 * Nadpisana metoda zamykająca strumień; tekst pozostaje dostępny.
+		 */
+		@Override
+		public void close() {
+		}
+
+		/**
+		 * Nadpisana metoda dająca w wyniku zebrany tekst.
+		 */
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+
+	/**
+	 * Metoda wykrywająca typ MIME pliku na podstawie jego nazwy i zawartości.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return typ MIME pliku lub unknown, jeśli nie można go odczytać
+	 */
+	String detectType(Path file) {
+		Metadata metadata = new Metadata();
+		metadata.set(Metadata.RESOURCE_NAME_KEY, file.getFileName().toString());
+		try (TikaInputStream stream = TikaInputStream.get(file)) {
+			return parser.getDetector().detect(stream, metadata).getBaseType().toString();
+		} catch (IOException e) {
+			return "unknown";
+		}
+	}
+
+	/**
+	 * Metoda wykrywająca język podanego tekstu. Detektor pobierany jest z puli,
+	 * resetowany przed użyciem i zwracany do puli po wykryciu języka. Dla
+	 * długich tekstów analizowane są fragmenty rozłożone równomiernie w tekście.
+	 * Język wykrywany jest po dodaniu połowy z nich i, jeśli nie osiągnięto
+	 * wymaganej pewności, ponownie po dodaniu wszystkich. Detektor przegląda
+	 * przy każdym wykrywaniu cały dodany tekst, więc nie jest ono powtarzane
+	 * po każdym fragmencie.
+	 * 
+	 * @param text tekst, którego język wykrywamy
+	 * @return dwuliterowy identyfikator języka
+	 * @throws IOException
+	 */
+	public String detectLanguage(CharSequence text) throws IOException {
+		long detectionStart = System.nanoTime();
+		LanguageDetector languageDetector = acquireDetector();
+		try {
+			if (detectionSample <= 0 || text.length() <= detectionSample) {
+				languageDetector.addText(text);
+				return language(languageDetector.detectAll());
+			}
+
+			int windowLength = detectionSample / detectionWindows;
+			int stride = text.length() / detectionWindows;
+			int half = (detectionWindows + 1) / 2;
+			List<LanguageResult> results = null;
+			for (int i = 0; i < detectionWindows; i++) {
+				int start = i * stride + (stride - windowLength) / 2;
+				languageDetector.addText(text.subSequence(start, start + windowLength));
+				if (i + 1 == half || i + 1 == detectionWindows) {
+					results = languageDetector.detectAll();
+					if (results.get(0).getRawScore() >= detectionConfidence) {
+						break;
+					}
+				}
+			}
+			return language(results);
+		} finally {
+			detectors.add(languageDetector);
+			stats.detected(System.nanoTime() - detectionStart);
+		}
+	}
+
+	/**
+	 * Metoda dająca w wyniku identyfikator najbardziej prawdopodobnego języka.
+	 * 
+	 * @param results wyniki wykrywania języka
+	 * @return dwuliterowy identyfikator języka
+	 */
+	private static String language(List<LanguageResult> results) {
+		return results.get(0).toString().substring(0, 2);
+	}
+
+	/**
+	 * Metoda pobierająca z puli wyzerowany detektor języka lub tworząca nowy, gdy
+	 * wszystkie są zajęte.
+	 * 
+	 * @return detektor języka gotowy do przyjęcia tekstu dokumentu
+	 * @throws IOException
+	 */
+	private LanguageDetector acquireDetector() throws IOException {
+		LanguageDetector languageDetector = detectors.poll();
+		if (languageDetector == null) {
+			return newDetector();
+		}
+		languageDetector.reset();
+		return languageDetector;
+	}
+
+	/**
+	 * Metoda tworząca detektor języka z wczytanymi modelami.
+	 * 
+	 * @return nowy detektor języka
+	 * @throws IOException
+	 */
+	private LanguageDetector newDetector() throws IOException {
+		LanguageDetector languageDetector = new OptimaizeLangDetector();
+		languageDetector.loadModels(languages);
+		return languageDetector;
+	}
+
+	/**
+	 * Akcesor dający w wyniku zbiór języków obsługiwanych przez silnik.
+	 * 
+	 * @return zbiór identyfikatorów języków
+	 */
+	Set<String> languages() {
+		return languages;
+	}
+
+	/**
+	 * Metoda zamykająca silnik: kończy wątki parsujące po zakończeniu bieżących
+	 * zadań, zatrzymuje wątek nadzorujący i procesy potomne.
+	 */
+	@Override
+	public void close() {
+		parsingThreads.shutdown();
+		watchdog.shutdownNow();
+		if (forkParser != null) {
+			forkParser.close();
+		}
+	}
+}
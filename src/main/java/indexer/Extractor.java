@@ -1,16 +1,13 @@
 package indexer;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.function.LongPredicate;
 
 import org.apache.tika.exception.TikaException;
-import org.apache.tika.langdetect.OptimaizeLangDetector;
-import org.apache.tika.language.detect.LanguageDetector;
-import org.apache.tika.language.detect.LanguageResult;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.sax.BodyContentHandler;
 import org.xml.sax.SAXException;
 
 /**
@@ -19,7 +16,7 @@ import org.xml.sax.SAXException;
  * @author Karol Soczewica
  * @version 2019.06.21
  */
-public class Extractor {
+public class Extractor implements Closeable {
 	/**
 	 * Język wyekstraktowanego tekstu.
 	 */
@@ -31,7 +28,14 @@ public class Extractor {
 	private String text;
 
 	/**
-	 * Konstruktor klasy Extractor.
+	 * Strumień wyekstraktowanego tekstu przy ekstrakcji strumieniowej lub null.
+	 */
+	private Reader contents;
+
+	/**
+	 * Konstruktor klasy Extractor. Tworzy jednorazowy silnik ekstrakcji, który
+	 * zamyka po ekstrakcji; przy wielu plikach należy używać współdzielonego
+	 * obiektu ExtractionEngine.
 	 * 
 	 * @param stream             strumień, z którego ekstraktujemy tekst
 	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
@@ -41,24 +45,79 @@ public class Extractor {
 	 */
 	public Extractor(InputStream stream, Languages availableLanguages)
 			throws IOException, SAXException, TikaException {
-		BodyContentHandler handler = new BodyContentHandler();
-		Metadata metadata = new Metadata();
-		AutoDetectParser parser = new AutoDetectParser();
-		LanguageDetector languageDetector = new OptimaizeLangDetector();
+		try (ExtractionEngine engine = new ExtractionEngine(availableLanguages)) {
+			extract(stream, engine, chars -> true);
+		}
+	}
 
-		parser.parse(stream, handler, metadata);
-		String extraxtedText = handler.toString();
+	/**
+	 * Konstruktor klasy Extractor korzystający ze współdzielonego silnika.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param engine silnik ekstrakcji
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	Extractor(InputStream stream, ExtractionEngine engine)
+			throws IOException, SAXException, TikaException {
+		extract(stream, engine, chars -> true);
+	}
 
-		languageDetector.loadModels(availableLanguages.languages());
-		languageDetector.addText(extraxtedText);
-		List<LanguageResult> languages = languageDetector.detectAll();
+	/**
+	 * Konstruktor klasy Extractor korzystający ze współdzielonego silnika,
+	 * przerywający ekstrakcję, gdy tekst nie mieści się w budżecie.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param engine silnik ekstrakcji
+	 * @param budget warunek, który musi spełniać liczba znaków tekstu
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	Extractor(InputStream stream, ExtractionEngine engine, LongPredicate budget)
+			throws IOException, SAXException, TikaException {
+		extract(stream, engine, budget);
+	}
 
-		language = languages.get(0).toString().substring(0, 2);
-		text = extraxtedText;
+	/**
+	 * Konstruktor klasy Extractor dla tekstu ekstraktowanego strumieniowo. Język
+	 * wykrywany jest na podstawie próbki z początku tekstu.
+	 * 
+	 * @param contents strumień wyekstraktowanego tekstu
+	 * @param engine   silnik ekstrakcji
+	 * @throws IOException
+	 */
+	Extractor(StreamingText contents, ExtractionEngine engine) throws IOException {
+		try {
+			text = contents.sample();
+			language = engine.detectLanguage(text);
+		} catch (IOException | RuntimeException e) {
+			contents.close();
+			throw e;
+		}
+		this.contents = contents;
 	}
 
 	/**
-	 * Akcesor dający w wyniku wyekstraktowany tekst.
+	 * Metoda ekstraktująca tekst ze strumienia i rozpoznająca jego język.
+	 * 
+	 * @param stream strumień, z którego ekstraktujemy tekst
+	 * @param engine silnik ekstrakcji
+	 * @param budget warunek, który musi spełniać liczba znaków tekstu
+	 * @throws IOException
+	 * @throws SAXException
+	 * @throws TikaException
+	 */
+	private void extract(InputStream stream, ExtractionEngine engine, LongPredicate budget)
+			throws IOException, SAXException, TikaException {
+		text = engine.parse(stream, budget);
+		language = engine.detectLanguage(text);
+	}
+
+	/**
+	 * Akcesor dający w wyniku wyekstraktowany tekst. Przy ekstrakcji
+	 * strumieniowej jest to jedynie próbka z początku tekstu.
 	 * 
 	 * @return wyekstraktowany tekst
 	 */
@@ -66,6 +125,25 @@ public class Extractor {
 		return text;
 	}
 
+	/**
+	 * Metoda informująca, czy tekst był ekstraktowany strumieniowo.
+	 * 
+	 * @return true, jeśli pełny tekst dostępny jest tylko przez contents()
+	 */
+	public boolean streaming() {
+		return contents != null;
+	}
+
+	/**
+	 * Akcesor dający w wyniku strumień pełnego wyekstraktowanego tekstu. Strumień
+	 * można przeczytać tylko raz i należy go zamknąć.
+	 * 
+	 * @return strumień tekstu
+	 */
+	public Reader contents() {
+		return (contents != null) ? contents : new StringReader(text);
+	}
+
 	/**
 	 * Akcesor dający w wyniku język wyekstraktowanego tekstu.
 	 * 
@@ -74,4 +152,17 @@ public class Extractor {
 	public String language() {
 		return language;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Metoda zamykająca strumień tekstu ekstraktowanego strumieniowo, co
+	 * przerywa parsowanie, jeśli tekst nie został przeczytany do końca.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (contents != null) {
+			contents.close();
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package indexer;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -10,19 +12,37 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import common.Settings;
 
-import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.tika.exception.TikaException;
@@ -46,14 +66,137 @@ public class Indexer {
 	private static final String englishIndexPath = "index/indexEN";
 
 	/**
-	 * Obiekt klasy IndexWriter dla plików w języku polskim.
+	 * Ścieżka do pliku ze spisem zaindeksowanych plików.
+	 */
+	private static final String manifestPath = "index/manifest.txt";
+
+	/**
+	 * Ścieżka do katalogu z tymczasowymi indeksami budowy wsadowej.
+	 */
+	private static final String bulkPath = "index/bulk";
+
+	/**
+	 * Ścieżka do dziennika postępu dodawania katalogu.
+	 */
+	private static final String journalPath = "index/add.journal";
+
+	/**
+	 * Ścieżka do spisu plików, których parsowanie przekraczało limit czasu.
+	 */
+	private static final String quarantinePath = "index/quarantine.txt";
+
+	/**
+	 * Pojemność kolejki plików oczekujących na ekstrakcję (na jeden wątek).
+	 */
+	private static final int queueCapacityPerThread = 64;
+
+	/**
+	 * Znacznik końca kolejki plików, po którego odebraniu wątek kończy pracę.
+	 */
+	private static final Path endOfQueue = Paths.get("");
+
+	/**
+	 * Typ pola z tekstem dokumentu. Indeks przechowuje pozycje słów w tekście,
+	 * dzięki czemu wyszukiwarka wyznacza konteksty bez ponownej analizy tekstu.
+	 */
+	private static final FieldType contentsType = withOffsets(TextField.TYPE_STORED);
+
+	/**
+	 * Typ pola z tekstem dokumentu ekstraktowanego strumieniowo, który nie jest
+	 * przechowywany w całości.
+	 */
+	private static final FieldType streamedContentsType = withOffsets(TextField.TYPE_NOT_STORED);
+
+	/**
+	 * Przedrostek nazw katalogów części indeksu.
+	 */
+	private static final String shardPrefix = "shard-";
+
+	/**
+	 * Pary indeksów polskiego i angielskiego dla kolejnych części indeksu.
+	 * Dokument trafia do części wyznaczonej przez skrót jego ścieżki.
+	 */
+	private final Writers[] shards;
+
+	/**
+	 * Rozmiar bufora w pamięci (w MB) każdej części indeksu budowanego wsadowo.
+	 */
+	private final int shardBufferMB = Integer.getInteger("indexer.shardBufferMB", 64);
+
+	/**
+	 * Liczba plików, po której zaindeksowaniu dodawanie katalogu jest
+	 * zatwierdzane; 0 wyłącza zatwierdzanie według liczby plików.
+	 */
+	private final int checkpointFiles = Integer.getInteger("indexer.checkpointFiles", 10000);
+
+	/**
+	 * Czas (w sekundach), po którym dodawanie katalogu jest zatwierdzane; 0
+	 * wyłącza zatwierdzanie według czasu.
+	 */
+	private final long checkpointSeconds = Long.getLong("indexer.checkpointSeconds", 60);
+
+	/**
+	 * Liczba plików wstawionych do kolejki, których indeksowanie nie zostało
+	 * jeszcze zakończone.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * Błąd, który przerwał bieżące indeksowanie, lub null. Po jego wystąpieniu
+	 * wątki ekstrakcji jedynie opróżniają kolejkę.
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Informacja, czy indeks zawiera dokumenty bez termów katalogów nadrzędnych,
+	 * zaindeksowane przed ich wprowadzeniem. Katalogi usuwane są wtedy także
+	 * wolniejszym zapytaniem o przedrostek ścieżki.
 	 */
-	private IndexWriter polishWriter;
+	private boolean legacy;
 
 	/**
-	 * Obiekt klasy IndexWriter dla plików w języku angielskim.
+	 * Liczba wątków wykonujących ekstrakcję tekstu.
 	 */
-	private IndexWriter englishWriter;
+	private final int threads;
+
+	/**
+	 * Silnik ekstrakcji współdzielony przez wszystkie wywołania indeksera.
+	 */
+	private ExtractionEngine engine;
+
+	/**
+	 * Spis zaindeksowanych plików.
+	 */
+	private final Manifest manifest;
+
+	/**
+	 * Spis plików w kwarantannie.
+	 */
+	private final Quarantine quarantine;
+
+	/**
+	 * Filtr odrzucający pliki bez użytecznego tekstu przed parsowaniem.
+	 */
+	private final DocumentFilter filter = new DocumentFilter();
+
+	/**
+	 * Liczniki kolejnych etapów indeksowania, udostępniane przez JMX.
+	 */
+	private final IndexerStats stats = new IndexerStats();
+
+	/**
+	 * Rozmiar pliku w bajtach, od którego dokument indeksowany jest w osobnym,
+	 * jedynym wątku dla dużych dokumentów.
+	 */
+	private final long largeDocumentBytes = Long.getLong("indexer.largeDocumentBytes",
+			4 * 1024 * 1024);
+
+	/**
+	 * Budżet pamięci na tekst dokumentów w trakcie indeksowania, podawany we
+	 * właściwości indexer.memoryBudgetMB (domyślnie jedna czwarta sterty).
+	 */
+	private final MemoryBudget budget = new MemoryBudget(1024 * 1024 * Long.getLong(
+			"indexer.memoryBudgetMB", Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024)), stats);
 
 	/**
 	 * Konstruktor klasy Indexer.
@@ -61,106 +204,1075 @@ public class Indexer {
 	 * @throws IOException
 	 */
 	public Indexer() throws IOException {
-		Directory directoryPL = FSDirectory.open(Paths.get(polishIndexPath));
-		Directory directoryEN = FSDirectory.open(Paths.get(englishIndexPath));
-		Analyzer analyzer = new StandardAnalyzer();
-		IndexWriterConfig iwcPL = new IndexWriterConfig(analyzer);
-		IndexWriterConfig iwcEN = new IndexWriterConfig(analyzer);
+		this(Integer.getInteger("indexer.threads", Runtime.getRuntime().availableProcessors()));
+	}
 
-		iwcPL.setOpenMode(OpenMode.CREATE_OR_APPEND);
-		iwcEN.setOpenMode(OpenMode.CREATE_OR_APPEND);
+	/**
+	 * Konstruktor klasy Indexer z podaną liczbą wątków ekstrakcji.
+	 * 
+	 * @param threads liczba wątków wykonujących ekstrakcję tekstu
+	 * @throws IOException
+	 */
+	public Indexer(int threads) throws IOException {
+		this.threads = Math.max(1, threads);
+		int count = shardCount();
+		shards = new Writers[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new Writers(
+					newWriter(shardPath(polishIndexPath, i, count), OpenMode.CREATE_OR_APPEND, 0),
+					newWriter(shardPath(englishIndexPath, i, count), OpenMode.CREATE_OR_APPEND, 0));
+			legacy |= missingAncestors(shards[i].polish) || missingAncestors(shards[i].english);
+		}
+		if (legacy) {
+			System.err.println("Index has documents without directory terms, removing directories "
+					+ "will be slow; purge and add the directories again to fix it");
+		}
+		manifest = new Manifest(Paths.get(manifestPath));
+		quarantine = new Quarantine(Paths.get(quarantinePath));
+		stats.register();
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy indeks zawiera dokumenty bez termów katalogów
+	 * nadrzędnych. Każdy nowy dokument ma co najmniej jeden taki term.
+	 * 
+	 * @param writer obiekt klasy IndexWriter
+	 * @return true, jeśli któryś dokument nie ma termów katalogów
+	 * @throws IOException
+	 */
+	private static boolean missingAncestors(IndexWriter writer) throws IOException {
+		try (DirectoryReader reader = DirectoryReader.open(writer)) {
+			return reader.getDocCount("ancestor") < reader.maxDoc();
+		}
+	}
 
-		polishWriter = new IndexWriter(directoryPL, iwcPL);
-		englishWriter = new IndexWriter(directoryEN, iwcEN);
+	/**
+	 * Akcesor dający w wyniku liczniki kolejnych etapów indeksowania.
+	 * 
+	 * @return liczniki indeksowania
+	 */
+	public IndexerStats stats() {
+		return stats;
+	}
+
+	/**
+	 * Metoda wyznaczająca liczbę części indeksu. Istniejący indeks zachowuje
+	 * swój podział; nowy indeks dzielony jest na liczbę części podaną we
+	 * właściwości indexer.shards (domyślnie jedną).
+	 * 
+	 * @return liczba części indeksu
+	 * @throws IOException
+	 */
+	private static int shardCount() throws IOException {
+		Integer configured = Integer.getInteger("indexer.shards");
+		Path polish = Paths.get(polishIndexPath);
+		int existing = 0;
+		if (Files.isDirectory(polish.resolve(shardPrefix + 0))) {
+			while (Files.isDirectory(polish.resolve(shardPrefix + existing))) {
+				existing++;
+			}
+		} else if (Files.isDirectory(polish)) {
+			try (Directory directory = FSDirectory.open(polish)) {
+				if (DirectoryReader.indexExists(directory)) {
+					existing = 1;
+				}
+			}
+		}
+
+		if (existing == 0) {
+			return (configured == null) ? 1 : Math.max(1, configured);
+		}
+		if (configured != null && configured != existing) {
+			System.err.println("Index has " + existing + " shards, ignoring indexer.shards");
+		}
+		return existing;
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżkę do podanej części indeksu. Niepodzielony
+	 * indeks zajmuje cały katalog języka.
+	 * 
+	 * @param indexPath ścieżka do katalogu indeksu języka
+	 * @param shard     numer części
+	 * @param count     liczba części
+	 * @return ścieżka do katalogu części indeksu
+	 */
+	private static Path shardPath(String indexPath, int shard, int count) {
+		Path path = Paths.get(indexPath);
+		return (count == 1) ? path : path.resolve(shardPrefix + shard);
+	}
+
+	/**
+	 * Metoda wyznaczająca część indeksu, do której należy dokument o podanej
+	 * ścieżce.
+	 * 
+	 * @param shards części indeksu
+	 * @param path   napis reprezentujący ścieżkę dokumentu
+	 * @return para indeksów części
+	 */
+	private static Writers shard(Writers[] shards, String path) {
+		return shards[Math.floorMod(path.hashCode(), shards.length)];
+	}
+
+	/**
+	 * Klasa przechowująca parę obiektów klasy IndexWriter, do których trafiają
+	 * dokumenty w języku polskim i angielskim.
+	 */
+	private static class Writers {
+		/**
+		 * Obiekt klasy IndexWriter dla plików w języku polskim.
+		 */
+		final IndexWriter polish;
+
+		/**
+		 * Obiekt klasy IndexWriter dla plików w języku angielskim.
+		 */
+		final IndexWriter english;
+
+		/**
+		 * Konstruktor klasy Writers.
+		 * 
+		 * @param polish  obiekt klasy IndexWriter dla plików w języku polskim
+		 * @param english obiekt klasy IndexWriter dla plików w języku angielskim
+		 */
+		Writers(IndexWriter polish, IndexWriter english) {
+			this.polish = polish;
+			this.english = english;
+		}
+	}
+
+	/**
+	 * Metoda tworząca obiekt klasy IndexWriter dla indeksu w podanym katalogu,
+	 * skonfigurowany według ustawień z klasy Settings.
+	 * 
+	 * @param path     ścieżka do katalogu indeksu
+	 * @param mode     tryb otwarcia indeksu
+	 * @param bufferMB rozmiar bufora w pamięci w MB lub 0 dla domyślnego
+	 * @return obiekt klasy IndexWriter
+	 * @throws IOException
+	 */
+	private static IndexWriter newWriter(Path path, OpenMode mode, int bufferMB)
+			throws IOException {
+		IndexWriterConfig config = Settings.writerConfig(new StandardAnalyzer());
+		config.setOpenMode(mode);
+		if (bufferMB > 0) {
+			config.setRAMBufferSizeMB(bufferMB);
+		}
+		return new IndexWriter(Settings.openDirectory(path), config);
+	}
+
+	/**
+	 * Metoda tworząca typ pola na podstawie podanego typu, z indeksowaniem
+	 * pozycji słów w tekście.
+	 * 
+	 * @param type typ bazowy
+	 * @return zamrożony typ pola
+	 */
+	private static FieldType withOffsets(FieldType type) {
+		FieldType withOffsets = new FieldType(type);
+		withOffsets.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+		withOffsets.freeze();
+		return withOffsets;
 	}
 
 	/**
 	 * Metoda indeksująca dokumenty z katalogu o podanej jako parametr ścieżce.
+	 * Przejście po drzewie katalogów zasila ograniczoną kolejkę, z której pliki
+	 * pobiera pula wątków wykonujących ekstrakcję i dodających dokumenty do
+	 * indeksu.
 	 * 
 	 * @param file               ścieżka do katalogu
 	 * @param availableLanguages obiekt klasy Languages
 	 * @throws IOException
 	 */
 	public void indexDocuments(Path file, Languages availableLanguages) throws IOException {
-		if (Files.isDirectory(file)) {
-			Files.walkFileTree(file, new SimpleFileVisitor<Path>() {
-				@Override
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-						throws IOException {
-					if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
-						indexDocument(file, availableLanguages);
-					} else {
-						System.err.println("Not regular file " + file.getFileName().toString());
+		ExtractionEngine engine = extractionEngine(availableLanguages);
+		if (!Files.isDirectory(file)) {
+			indexDocument(file, engine, shards);
+			return;
+		}
+
+		runPipeline(engine, walker(file), new Writers[][] { shards }, null);
+	}
+
+	/**
+	 * Metoda indeksująca wsadowo dokumenty z katalogu o podanej ścieżce. Każdy
+	 * z wątków ekstrakcji dodaje dokumenty do własnej pary tymczasowych indeksów,
+	 * więc wątki nie współdzielą bufora ani scalania segmentów. Tymczasowe
+	 * indeksy dołączane są do indeksów głównych przy każdym zatwierdzeniu
+	 * postępu, a dokumenty, które wcześniej znajdowały się w tym katalogu, są z
+	 * nich usuwane na początku. Indeks podzielony na części ma już osobny bufor
+	 * i scalanie dla każdej części, więc jest indeksowany bezpośrednio.
+	 * 
+	 * Postęp jest zatwierdzany co określoną liczbę plików lub określony czas, a
+	 * zatwierdzone katalogi zapisywane są w dzienniku. Ponowne dodanie katalogu
+	 * po przerwaniu pomija zatwierdzone poddrzewa i niezmienione pliki.
+	 * 
+	 * @param file               ścieżka do katalogu
+	 * @param availableLanguages obiekt klasy Languages
+	 * @param shards             liczba tymczasowych indeksów budowanych
+	 *                           równolegle
+	 * @throws IOException
+	 */
+	public void bulkIndexDocuments(Path file, Languages availableLanguages, int shards)
+			throws IOException {
+		if (!Files.isDirectory(file)) {
+			indexDocuments(file, availableLanguages);
+			return;
+		}
+
+		Journal journal = new Journal(Paths.get(journalPath), file);
+		ExtractionEngine engine = extractionEngine(availableLanguages);
+		if (shards < 2 || this.shards.length > 1) {
+			runPipeline(engine, walker(file, journal, this::commit),
+					new Writers[][] { this.shards }, null);
+			journal.delete();
+			return;
+		}
+
+		Path bulk = Paths.get(bulkPath);
+		deleteRecursively(bulk);
+		Writers[][] shardWriters = new Writers[shards][];
+		try {
+			for (int i = 0; i < shards; i++) {
+				shardWriters[i] = new Writers[] { bulkWriters(bulk, i) };
+			}
+			if (!journal.resumed()) {
+				String normalized = file.toString();
+				this.shards[0].polish.deleteDocuments(new Term("path", normalized),
+						new Term("ancestor", normalized));
+				this.shards[0].english.deleteDocuments(new Term("path", normalized),
+						new Term("ancestor", normalized));
+				if (legacy) {
+					this.shards[0].polish.deleteDocuments(pathPrefix(normalized));
+					this.shards[0].english.deleteDocuments(pathPrefix(normalized));
+				}
+				manifest.removeUnder(normalized);
+			}
+			runPipeline(engine, walker(file, journal, () -> addBulkIndexes(bulk, shardWriters)),
+					shardWriters, null);
+		} finally {
+			for (Writers[] shard : shardWriters) {
+				if (shard != null) {
+					shard[0].polish.close();
+					shard[0].english.close();
+				}
+			}
+			deleteRecursively(bulk);
+		}
+		journal.delete();
+	}
+
+	/**
+	 * Metoda tworząca nową parę tymczasowych indeksów budowanych wsadowo.
+	 * 
+	 * @param bulk  katalog tymczasowych indeksów
+	 * @param shard numer pary
+	 * @return para obiektów klasy IndexWriter
+	 * @throws IOException
+	 */
+	private Writers bulkWriters(Path bulk, int shard) throws IOException {
+		Path path = bulk.resolve("shard-" + shard);
+		return new Writers(newWriter(path.resolve("PL"), OpenMode.CREATE, shardBufferMB),
+				newWriter(path.resolve("EN"), OpenMode.CREATE, shardBufferMB));
+	}
+
+	/**
+	 * Metoda dołączająca tymczasowe indeksy do indeksów głównych, opróżniająca
+	 * je i zatwierdzająca zmiany. Wątki ekstrakcji nie mogą w tym czasie
+	 * indeksować dokumentów.
+	 * 
+	 * @param bulk         katalog tymczasowych indeksów
+	 * @param shardWriters pary tymczasowych indeksów
+	 * @throws IOException
+	 */
+	private void addBulkIndexes(Path bulk, Writers[][] shardWriters) throws IOException {
+		int count = shardWriters.length;
+		Directory[] polish = new Directory[count];
+		Directory[] english = new Directory[count];
+		for (int i = 0; i < count; i++) {
+			polish[i] = shardWriters[i][0].polish.getDirectory();
+			english[i] = shardWriters[i][0].english.getDirectory();
+			shardWriters[i][0].polish.close();
+			shardWriters[i][0].english.close();
+		}
+		shards[0].polish.addIndexes(polish);
+		shards[0].english.addIndexes(english);
+		for (int i = 0; i < count; i++) {
+			polish[i].close();
+			english[i].close();
+			shardWriters[i][0] = bulkWriters(bulk, i);
+		}
+		commit();
+	}
+
+	/**
+	 * Metoda dająca w wyniku źródło plików przechodzące po drzewie katalogów o
+	 * podanym korzeniu. Katalogi pomijane przez filtr nie są przeglądane.
+	 * 
+	 * @param root ścieżka do katalogu
+	 * @return źródło plików
+	 */
+	private FileSource walker(Path root) {
+		return queue -> Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return filter.skipDirectory(dir) ? FileVisitResult.SKIP_SUBTREE
+						: FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+					throws IOException {
+				if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+					enqueue(queue, file);
+				} else {
+					System.err.println("Not regular file " + file.getFileName().toString());
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc)
+					throws IOException {
+				if (exc instanceof AccessDeniedException) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return super.visitFileFailed(file, exc);
+			}
+		});
+	}
+
+	/**
+	 * Interfejs operacji zatwierdzającej postęp indeksowania.
+	 */
+	private interface Checkpoint {
+		/**
+		 * Metoda zatwierdzająca zaindeksowane dokumenty.
+		 * 
+		 * @throws IOException
+		 */
+		void commit() throws IOException;
+	}
+
+	/**
+	 * Metoda dająca w wyniku źródło plików przechodzące po drzewie katalogów o
+	 * podanym korzeniu i zatwierdzające postęp co określoną liczbę plików lub
+	 * określony czas oraz po przejściu całego drzewa. Przed zatwierdzeniem
+	 * czeka, aż wątki ekstrakcji zaindeksują wszystkie pliki z kolejki, więc
+	 * katalogi przejrzane do tej chwili są w całości zatwierdzone i trafiają do
+	 * dziennika. Przy wznawianiu pomijane są zatwierdzone poddrzewa i pliki
+	 * niezmienione od zaindeksowania, a zmienione pliki są najpierw usuwane z
+	 * indeksów głównych, ponieważ przy budowie wsadowej trafiają do indeksów
+	 * tymczasowych i bez tego zostałyby w indeksie dwukrotnie. Katalogi pomijane
+	 * przez filtr nie są przeglądane.
+	 * 
+	 * @param root       ścieżka do katalogu
+	 * @param journal    dziennik postępu
+	 * @param checkpoint operacja zatwierdzająca postęp
+	 * @return źródło plików
+	 */
+	private FileSource walker(Path root, Journal journal, Checkpoint checkpoint) {
+		return queue -> Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			private final List<Path> walked = new ArrayList<Path>();
+			private int files = 0;
+			private long deadline = nextCheckpoint();
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				return (journal.completed(dir) || filter.skipDirectory(dir))
+						? FileVisitResult.SKIP_SUBTREE
+						: FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+					throws IOException {
+				if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+					System.err.println("Not regular file " + file.getFileName().toString());
+				} else if (!journal.resumed() || changed(file, attrs)) {
+					if (journal.resumed() && manifest.get(file.toString()) != null) {
+						removeDocument(file);
+					}
+					enqueue(queue, file);
+					files++;
+					if ((checkpointFiles > 0 && files >= checkpointFiles)
+							|| System.nanoTime() - deadline >= 0) {
+						checkpoint();
 					}
-					return FileVisitResult.CONTINUE;
 				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc)
+					throws IOException {
+				if (exc instanceof AccessDeniedException) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return super.visitFileFailed(file, exc);
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+					throws IOException {
+				super.postVisitDirectory(dir, exc);
+				walked.add(dir);
+				if (dir.equals(root)) {
+					checkpoint();
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			/**
+			 * Metoda zatwierdzająca postęp i zapisująca w dzienniku przejrzane
+			 * katalogi.
+			 * 
+			 * @throws IOException
+			 */
+			private void checkpoint() throws IOException {
+				awaitIndexed();
+				checkpoint.commit();
+				journal.append(walked);
+				walked.clear();
+				files = 0;
+				deadline = nextCheckpoint();
+			}
+		});
+	}
+
+	/**
+	 * Metoda wyznaczająca czas następnego zatwierdzenia postępu.
+	 * 
+	 * @return czas w nanosekundach
+	 */
+	private long nextCheckpoint() {
+		long seconds = (checkpointSeconds > 0) ? checkpointSeconds : TimeUnit.DAYS.toSeconds(365);
+		return System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+	}
+
+	/**
+	 * Metoda czekająca, aż wątki ekstrakcji zaindeksują wszystkie pliki
+	 * wstawione do kolejki.
+	 * 
+	 * @throws InterruptedIOException
+	 */
+	private void awaitIndexed() throws InterruptedIOException {
+		synchronized (inFlight) {
+			try {
+				while (inFlight.get() > 0) {
+					inFlight.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for extraction");
+			}
+		}
+	}
 
-				@Override
-				public FileVisitResult visitFileFailed(Path file, IOException exc)
-						throws IOException {
-					if (exc instanceof AccessDeniedException) {
-						return FileVisitResult.SKIP_SUBTREE;
+	/**
+	 * Metoda usuwająca katalog wraz z zawartością, o ile istnieje.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 * @throws IOException
+	 */
+	static void deleteRecursively(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+					throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+					throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Metoda reindeksująca przyrostowo podane katalogi. Stan systemu plików
+	 * porównywany jest ze spisem zaindeksowanych plików: ekstraktowane są tylko
+	 * pliki nowe i zmienione, a z indeksu znikają pliki usunięte, pliki
+	 * odrzucane teraz przez filtr oraz zmienione pliki, których nie udało się
+	 * zaindeksować (w kwarantannie lub z błędem parsowania). Jeśli indeks
+	 * został zbudowany bez spisu, budowany jest od nowa.
+	 * 
+	 * @param directories        ścieżki do reindeksowanych katalogów
+	 * @param availableLanguages obiekt klasy Languages
+	 * @throws IOException
+	 */
+	public void reindexDocuments(List<Path> directories, Languages availableLanguages)
+			throws IOException {
+		if (!manifest.existed()) {
+			deleteAllIndexedFiles();
+			for (Path directory : directories) {
+				indexDocuments(directory, availableLanguages);
+			}
+			return;
+		}
+
+		Set<String> known = new HashSet<String>(manifest.paths());
+		Set<String> indexed = ConcurrentHashMap.newKeySet();
+		runPipeline(extractionEngine(availableLanguages), queue -> {
+			for (Path directory : directories) {
+				if (!Files.exists(directory)) {
+					continue;
+				}
+				Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir,
+							BasicFileAttributes attrs) {
+						return filter.skipDirectory(dir) ? FileVisitResult.SKIP_SUBTREE
+								: FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+							throws IOException {
+						if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+							String rule = skipRule(file);
+							if (rule != null) {
+								stats.skipped(rule);
+							} else if (changed(file, attrs)) {
+								enqueue(queue, file);
+							} else {
+								indexed.add(file.toString());
+							}
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc)
+							throws IOException {
+						if (exc instanceof AccessDeniedException) {
+							return FileVisitResult.SKIP_SUBTREE;
+						}
+						return super.visitFileFailed(file, exc);
+					}
+				});
+			}
+		}, new Writers[][] { shards }, indexed);
+
+		for (String path : known) {
+			if (!indexed.contains(path)) {
+				removeDocument(Paths.get(path));
+			}
+		}
+	}
+
+	/**
+	 * Metoda dająca w wyniku nazwę reguły filtra odrzucającej plik. Plik,
+	 * którego nie udało się odczytać, nie jest odrzucany, tak aby błąd został
+	 * odnotowany przy indeksowaniu.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return nazwa reguły lub null, jeśli plik należy zaindeksować
+	 */
+	private String skipRule(Path file) {
+		try {
+			return filter.skip(file);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy plik zmienił się od czasu zaindeksowania. Skrót
+	 * zawartości liczony jest tylko wtedy, gdy rozmiar się zgadza, a czas
+	 * modyfikacji nie.
+	 * 
+	 * @param file  ścieżka do pliku
+	 * @param attrs atrybuty pliku
+	 * @return true, jeśli plik należy zaindeksować ponownie
+	 * @throws IOException
+	 */
+	private boolean changed(Path file, BasicFileAttributes attrs) throws IOException {
+		Manifest.Entry entry = manifest.get(file.toString());
+		long modified = attrs.lastModifiedTime().toMillis();
+		if (entry == null || entry.size != attrs.size()) {
+			return true;
+		}
+		if (entry.modified == modified) {
+			return false;
+		}
+		String hash = Manifest.hash(file);
+		if (!hash.equals(entry.hash)) {
+			return true;
+		}
+		manifest.put(file.toString(), attrs.size(), modified, hash);
+		return false;
+	}
+
+	/**
+	 * Interfejs źródła plików zasilającego kolejkę wątków ekstrakcji.
+	 */
+	private interface FileSource {
+		/**
+		 * Metoda wstawiająca do kolejki pliki do zaindeksowania.
+		 * 
+		 * @param queue kolejka plików do zaindeksowania
+		 * @throws IOException
+		 */
+		void feed(BlockingQueue<Path> queue) throws IOException;
+	}
+
+	/**
+	 * Metoda uruchamiająca pulę wątków ekstrakcji zasilaną przez podane źródło
+	 * plików i czekająca na przetworzenie wszystkich plików. Przy kilku zbiorach
+	 * indeksów każdy zbiór ma własny wątek, a wątków jest co najmniej tyle, ile
+	 * zbiorów. Duże pliki przekazywane są do osobnego wątku, więc w danej chwili
+	 * indeksowany jest co najwyżej jeden duży dokument, a pozostałe wątki
+	 * zajmują się w tym czasie małymi. Błąd (Error) w którymkolwiek wątku
+	 * przerywa indeksowanie.
+	 * 
+	 * @param engine  silnik ekstrakcji
+	 * @param source  źródło plików
+	 * @param targets zbiory części indeksu, do których trafiają dokumenty
+	 * @param indexed zbiór, do którego trafiają ścieżki zaindeksowanych plików,
+	 *                lub null
+	 * @throws IOException
+	 */
+	private void runPipeline(ExtractionEngine engine, FileSource source, Writers[][] targets,
+			Set<String> indexed) throws IOException {
+		failure = null;
+		int workerCount = Math.max(threads, targets.length);
+		BlockingQueue<Path> queue = new ArrayBlockingQueue<Path>(
+				workerCount * queueCapacityPerThread);
+		BlockingQueue<Path> largeQueue = new ArrayBlockingQueue<Path>(queueCapacityPerThread);
+		ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+		ExecutorService largeWorker = Executors.newSingleThreadExecutor();
+		for (int i = 0; i < workerCount; i++) {
+			Writers[] target = targets[i % targets.length];
+			workers.execute(() -> extractDocuments(queue, largeQueue, engine, target, indexed));
+		}
+		largeWorker.execute(() -> extractDocuments(largeQueue, null, engine, targets[0], indexed));
+
+		try {
+			source.feed(queue);
+		} finally {
+			try {
+				stopWorkers(queue, workers, workerCount);
+			} finally {
+				stopWorkers(largeQueue, largeWorker, 1);
+			}
+		}
+		if (failure != null) {
+			throw new IOException("Indexing failed", failure);
+		}
+	}
+
+	/**
+	 * Metoda wykonywana przez wątki ekstrakcji: pobiera pliki z kolejki i
+	 * indeksuje je aż do napotkania znacznika końca kolejki. Duże pliki
+	 * przekazywane są do kolejki dużych dokumentów, o ile jest podana. Wyjątek
+	 * przy indeksowaniu pliku jest liczony jako nieudana ekstrakcja, a błąd
+	 * (Error) zapisywany jest jako przyczyna przerwania indeksowania; wątek
+	 * pracuje dalej, aby nie zablokować wstawiania do kolejki.
+	 * 
+	 * @param queue      kolejka plików do zaindeksowania
+	 * @param largeQueue kolejka dużych dokumentów lub null
+	 * @param engine     silnik ekstrakcji
+	 * @param target     części indeksu, do których trafiają dokumenty
+	 * @param indexed    zbiór ścieżek zaindeksowanych plików lub null
+	 */
+	private void extractDocuments(BlockingQueue<Path> queue, BlockingQueue<Path> largeQueue,
+			ExtractionEngine engine, Writers[] target, Set<String> indexed) {
+		try {
+			Path file;
+			while ((file = queue.take()) != endOfQueue) {
+				boolean handedOver = false;
+				try {
+					if (failure == null && largeQueue != null && large(file)) {
+						stats.largeDocument();
+						largeQueue.put(file);
+						handedOver = true;
+					} else if (failure == null && indexDocument(file, engine, target)
+							&& indexed != null) {
+						indexed.add(file.toString());
+					}
+				} catch (RuntimeException e) {
+					stats.failed(engine.detectType(file));
+					System.err.println("Parsing file problem in file " + file.getFileName().toString());
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Throwable e) {
+					failure = e;
+					System.err.println("Indexing stopped by " + e + " in file "
+							+ file.getFileName().toString());
+				} finally {
+					if (!handedOver && inFlight.decrementAndGet() == 0) {
+						synchronized (inFlight) {
+							inFlight.notifyAll();
+						}
 					}
-					return super.visitFileFailed(file, exc);
 				}
-			});
-		} else {
-			indexDocument(file, availableLanguages);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy plik należy indeksować jako duży dokument.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return true, jeśli plik jest duży
+	 */
+	private boolean large(Path file) {
+		try {
+			return Files.size(file) >= largeDocumentBytes;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Metoda wstawiająca plik do kolejki, czekająca na wolne miejsce.
+	 * 
+	 * @param queue kolejka plików do zaindeksowania
+	 * @param file  ścieżka do pliku
+	 * @throws IOException jeśli indeksowanie zostało przerwane
+	 */
+	private void enqueue(BlockingQueue<Path> queue, Path file) throws IOException {
+		if (failure != null) {
+			throw new IOException("Indexing failed", failure);
+		}
+		inFlight.incrementAndGet();
+		try {
+			queue.put(file);
+			stats.queued(queue.size());
+		} catch (InterruptedException e) {
+			inFlight.decrementAndGet();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while queueing " + file);
+		}
+	}
+
+	/**
+	 * Metoda przekazująca wątkom ekstrakcji znaczniki końca kolejki i czekająca na
+	 * zakończenie ich pracy.
+	 * 
+	 * @param queue       kolejka plików do zaindeksowania
+	 * @param workers     pula wątków ekstrakcji
+	 * @param workerCount liczba wątków ekstrakcji
+	 * @throws InterruptedIOException
+	 */
+	private static void stopWorkers(BlockingQueue<Path> queue, ExecutorService workers,
+			int workerCount) throws InterruptedIOException {
+		try {
+			for (int i = 0; i < workerCount; i++) {
+				queue.put(endOfQueue);
+			}
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for extraction");
 		}
 	}
 
 	/**
-	 * Metoda indeksująca pojedynczy dokument.
+	 * Metoda dająca w wyniku silnik ekstrakcji dla podanych języków, tworząca go
+	 * przy pierwszym użyciu. Silnik dla innych języków jest zamykany.
 	 * 
-	 * @param file               ścieżka do dokumentu
 	 * @param availableLanguages obiekt klasy Languages
+	 * @return silnik ekstrakcji
+	 * @throws IOException
 	 */
-	private void indexDocument(Path file, Languages availableLanguages) {
-		try (InputStream stream = Files.newInputStream(file)) {
-			Document document = new Document();
-			Extractor extractor = new Extractor(stream, availableLanguages);
+	private ExtractionEngine extractionEngine(Languages availableLanguages) throws IOException {
+		if (engine == null || !engine.languages().equals(availableLanguages.languages())) {
+			if (engine != null) {
+				engine.close();
+			}
+			engine = new ExtractionEngine(availableLanguages, stats);
+		}
+		return engine;
+	}
+
+	/**
+	 * Metoda indeksująca pojedynczy dokument. Dokument o tej samej ścieżce jest
+	 * zastępowany, także jeśli znajdował się w indeksie drugiego języka. Przed
+	 * ekstrakcją rezerwowany jest budżet pamięci szacowany na podstawie rozmiaru
+	 * pliku, powiększany w miarę przybywania tekstu i poprawiany po ekstrakcji
+	 * do rozmiaru tekstu (dwa bajty na znak). Dokument, którego tekst nie mieści
+	 * się w budżecie, na przykład z pliku skompresowanego, jest ekstraktowany
+	 * ponownie strumieniowo. Pliki z kwarantanny są pomijane bez otwierania, a
+	 * pliki odrzucone przez filtr bez czytania dalej niż nagłówek. Przekroczenie
+	 * limitu czasu parsowania jest odnotowywane w kwarantannie. Poprzednia
+	 * wersja dokumentu, który został pominięty lub którego nie udało się
+	 * zaindeksować, jest usuwana z indeksu, tak aby nie można było jej znaleźć z
+	 * nieaktualną treścią.
+	 * 
+	 * @param file   ścieżka do dokumentu
+	 * @param engine silnik ekstrakcji
+	 * @param target części indeksu, spośród których wybierana jest część
+	 *               dokumentu
+	 * @return true, jeśli dokument został zaindeksowany
+	 */
+	private boolean indexDocument(Path file, ExtractionEngine engine, Writers[] target) {
+		if (indexDocument(file, engine, target, false)) {
+			return true;
+		}
+		try {
+			Term term = new Term("path", file.toString());
+			Writers shard = shard(target, file.toString());
+			shard.polish.deleteDocuments(term);
+			shard.english.deleteDocuments(term);
+			manifest.remove(file.toString());
+		} catch (IOException e) {
+			System.err.println("Removing file problem in file " + file.getFileName().toString());
+		}
+		return false;
+	}
 
-			Field pathField = new StringField("path", file.toString(), Field.Store.YES);
-			Field textField = new TextField("contents", extractor.text(), Field.Store.YES);
+	/**
+	 * Metoda indeksująca pojedynczy dokument, jak metoda
+	 * indexDocument(Path, ExtractionEngine, Writers[]), z możliwością wymuszenia
+	 * ekstrakcji strumieniowej.
+	 * 
+	 * @param file      ścieżka do dokumentu
+	 * @param engine    silnik ekstrakcji
+	 * @param target    części indeksu, spośród których wybierana jest część
+	 *                  dokumentu
+	 * @param streaming informacja, czy ekstraktować tekst strumieniowo
+	 * @return true, jeśli dokument został zaindeksowany
+	 */
+	private boolean indexDocument(Path file, ExtractionEngine engine, Writers[] target,
+			boolean streaming) {
+		if (quarantine.contains(file)) {
+			stats.quarantined();
+			return false;
+		}
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			String rule = filter.skip(file);
+			if (rule != null) {
+				stats.skipped(rule);
+				return false;
+			}
+		} catch (IOException e) {
+			stats.failed("unknown");
+			System.err.println("Reading file problem in file " + file.getFileName().toString());
+			return false;
+		}
+		MessageDigest digest = Manifest.newDigest();
+		MemoryBudget.Reservation reservation = budget
+				.reserve(2 * Math.min(attrs.size(), largeDocumentBytes));
+		boolean retry = false;
+		try (InputStream stream = new DigestInputStream(Files.newInputStream(file), digest)) {
+			try (Extractor extractor = streaming ? engine.extractStreaming(stream)
+					: engine.extract(stream, attrs.size(), chars -> reservation.grow(2 * chars))) {
+				reservation.resize(2L * extractor.text().length());
+				Document document = new Document();
+				Field pathField = new StringField("path", file.toString(), Field.Store.YES);
+				document.add(pathField);
+				if (extractor.streaming()) {
+					document.add(new Field("contents", extractor.contents(), streamedContentsType));
+					document.add(new StoredField("contents", extractor.text()));
+				} else {
+					document.add(new Field("contents", extractor.text(), contentsType));
+				}
+				for (Path ancestor = file.getParent(); ancestor != null;
+						ancestor = ancestor.getParent()) {
+					document.add(new StringField("ancestor", ancestor.toString(), Field.Store.NO));
+				}
 
-			document.add(pathField);
-			document.add(textField);
+				Term term = new Term("path", file.toString());
+				Writers shard = shard(target, file.toString());
+				long start = System.nanoTime();
+				if (extractor.language().equals("pl")) {
+					shard.polish.updateDocument(term, document);
+					shard.english.deleteDocuments(term);
+				} else {
+					shard.english.updateDocument(term, document);
+					shard.polish.deleteDocuments(term);
+				}
+				stats.added(System.nanoTime() - start);
+			}
 
-			if (extractor.language().equals("pl")) {
-				polishWriter.addDocument(document);
-			} else {
-				englishWriter.addDocument(document);
+			drain(stream);
+			manifest.put(file.toString(), attrs.size(), attrs.lastModifiedTime().toMillis(),
+					Manifest.toHex(digest));
+			stats.indexed(attrs.size());
+			return true;
+		} catch (TextBudgetException e) {
+			retry = true;
+		} catch (ParseTimeoutException e) {
+			stats.timedOut();
+			System.err.println("Parsing timed out in file " + file.getFileName().toString());
+			try {
+				if (quarantine.timedOut(file)) {
+					System.err.println("Quarantined file " + file);
+				}
+			} catch (IOException e1) {
+				System.err.println("Could not update quarantine for file " + file);
 			}
 		} catch (IOException | SAXException | TikaException e) {
+			stats.failed(engine.detectType(file));
 			System.err.println("Parsing file problem in file " + file.getFileName().toString());
+		} finally {
+			reservation.release();
+		}
+		return retry && indexDocument(file, engine, target, true);
+	}
+
+	/**
+	 * Metoda doczytująca strumień do końca, tak aby skrót objął cały plik, nawet
+	 * gdy parser nie przeczytał go w całości.
+	 * 
+	 * @param stream strumień pliku
+	 * @throws IOException
+	 */
+	private static void drain(InputStream stream) throws IOException {
+		byte[] buffer = new byte[8192];
+		while (stream.read(buffer) != -1) {
 		}
 	}
 
 	/**
-	 * Metoda usuwająca dokumenty z podanego jako parametr katalogu.
+	 * Metoda usuwająca z indeksu pojedynczy plik o podanej ścieżce.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @throws IOException
+	 */
+	private void removeDocument(Path file) throws IOException {
+		Term term = new Term("path", file.toString());
+		Writers shard = shard(shards, file.toString());
+		shard.polish.deleteDocuments(term);
+		shard.english.deleteDocuments(term);
+		manifest.remove(file.toString());
+	}
+
+	/**
+	 * Metoda usuwająca plik o podanej ścieżce lub wszystkie dokumenty z katalogu
+	 * o tej ścieżce. Każdy dokument ma zaindeksowane ścieżki wszystkich
+	 * katalogów, w których się znajduje, więc usunięcie katalogu sprowadza się
+	 * do usunięcia pojedynczego termu. Plik usuwany jest tylko z jego części
+	 * indeksu, a zawartość katalogu ze wszystkich części. W indeksie sprzed
+	 * wprowadzenia termów katalogów usuwane są także dokumenty, których ścieżka
+	 * zaczyna się od ścieżki katalogu.
 	 * 
 	 * @param path napis reprezentujący nazwę katalogu
 	 * @throws IOException
 	 */
 	public void removeDocuments(String path) throws IOException {
-		Term term = new Term("path", path + "*");
-		Query wildcard = new WildcardQuery(term);
-		polishWriter.deleteDocuments(wildcard);
-		englishWriter.deleteDocuments(wildcard);
+		String normalized = Paths.get(path).toString();
+		Term file = new Term("path", normalized);
+		Term directory = new Term("ancestor", normalized);
+		Writers owner = shard(shards, normalized);
+		for (Writers shard : shards) {
+			if (shard == owner) {
+				shard.polish.deleteDocuments(file, directory);
+				shard.english.deleteDocuments(file, directory);
+			} else {
+				shard.polish.deleteDocuments(directory);
+				shard.english.deleteDocuments(directory);
+			}
+			if (legacy) {
+				Query prefix = pathPrefix(normalized);
+				shard.polish.deleteDocuments(prefix);
+				shard.english.deleteDocuments(prefix);
+			}
+		}
+		manifest.removeUnder(normalized);
 	}
 
 	/**
-	 * Metoda zamykająca obiekty klasy IndexWriter.
+	 * Metoda usuwająca dokumenty zapisane przez starsze wersje indeksera pod
+	 * ścieżką w postaci podanej przez użytkownika, np. względnej, zamiast
+	 * bezwzględnej. Takie dokumenty nie mają termów katalogów, więc metoda
+	 * działa tylko w indeksie zawierającym dokumenty bez nich i usuwa plik o
+	 * tej ścieżce oraz dokumenty, których ścieżka zaczyna się od niej.
+	 * 
+	 * @param path ścieżka w postaci podanej przez użytkownika
+	 * @throws IOException
+	 */
+	public void removeLegacyDocuments(String path) throws IOException {
+		if (!legacy) {
+			return;
+		}
+		String given = Paths.get(path).toString();
+		Term file = new Term("path", given);
+		Query prefix = pathPrefix(given);
+		for (Writers shard : shards) {
+			shard.polish.deleteDocuments(file);
+			shard.polish.deleteDocuments(prefix);
+			shard.english.deleteDocuments(file);
+			shard.english.deleteDocuments(prefix);
+		}
+	}
+
+	/**
+	 * Metoda tworząca zapytanie o dokumenty z podanego katalogu na podstawie
+	 * przedrostka ścieżki, dla dokumentów bez termów katalogów.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 * @return zapytanie o przedrostek ścieżki
+	 */
+	private static Query pathPrefix(String directory) {
+		String prefix = directory.endsWith(File.separator) ? directory : directory + File.separator;
+		return new PrefixQuery(new Term("path", prefix));
+	}
+
+	/**
+	 * Metoda zatwierdzająca zmiany we wszystkich indeksach i dopisująca zmiany
+	 * spisu zaindeksowanych plików do jego dziennika, bez zamykania obiektów
+	 * klasy IndexWriter.
+	 * 
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+		long start = System.nanoTime();
+		for (Writers shard : shards) {
+			shard.polish.commit();
+			shard.english.commit();
+		}
+		manifest.save();
+		stats.committed(System.nanoTime() - start);
+	}
+
+	/**
+	 * Metoda zamykająca obiekty klasy IndexWriter oraz silnik ekstrakcji.
 	 * 
 	 * @throws IOException
 	 */
 	public void closeIndexWriters() throws IOException {
-		polishWriter.close();
-		englishWriter.close();
+		if (engine != null) {
+			engine.close();
+			engine = null;
+		}
+		long start = System.nanoTime();
+		for (Writers shard : shards) {
+			shard.polish.close();
+			shard.english.close();
+		}
+		manifest.compact();
+		stats.committed(System.nanoTime() - start);
+		stats.unregister();
 	}
 
+	/**
+	 * Metoda usuwająca z indeksu wszystkie pliki.
+	 * 
+	 * @throws IOException
+	 */
 	public void deleteAllIndexedFiles() throws IOException {
-		polishWriter.deleteAll();
-		englishWriter.deleteAll();
+		for (Writers shard : shards) {
+			shard.polish.deleteAll();
+			shard.english.deleteAll();
+		}
+		legacy = false;
+		manifest.clear();
 	}
 }
@@ -0,0 +1,561 @@
+package indexer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Klasa indeksera działającego w tle. Jedyny obiekt klasy Indexer, a więc i
+ * jedyne obiekty IndexWriter, należą do wątku zapisu, przez który przechodzą
+ * zarówno zmiany zgłaszane przez obserwatora katalogów, jak i polecenia add,
+ * rm, purge i reindex przesyłane przez gniazdo na adresie lokalnym. Numer
+ * portu i losowy żeton zapisywane są w pliku index/daemon.port, dostępnym
+ * tylko dla właściciela, dzięki czemu indekser uruchomiony z argumentami
+ * przekazuje polecenie do działającego procesu zamiast otwierać indeks
+ * samodzielnie, a inni użytkownicy komputera nie mogą wydawać poleceń.
+ * 
+ * Protokół jest tekstowy: klient wysyła jedną linię z żetonem, poleceniem i
+ * ścieżką bezwzględną, a proces odpowiada liniami komunikatów zakończonymi
+ * linią OK lub ERROR z opisem błędu. Polecenie z niepoprawnym żetonem jest
+ * odrzucane. Opcja --stats podana przed ścieżką powoduje odesłanie liczników
+ * indeksowania zebranych w czasie wykonywania tego polecenia.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class IndexerDaemon {
+	/**
+	 * Ścieżka do pliku z numerem portu i żetonem działającego procesu.
+	 */
+	private static final String portFile = "index/daemon.port";
+
+	/**
+	 * Maksymalny czas nawiązywania połączenia z procesem w milisekundach.
+	 */
+	private static final int connectTimeout = 1000;
+
+	/**
+	 * Maksymalny czas oczekiwania na zakończenie zadań przy zatrzymywaniu
+	 * procesu w sekundach.
+	 */
+	private static final long shutdownTimeout = 60;
+
+	/**
+	 * Liczba losowych bajtów żetonu.
+	 */
+	private static final int tokenBytes = 32;
+
+	/**
+	 * Opcja polecenia żądająca odesłania liczników indeksowania.
+	 */
+	private static final String statsOption = "--stats";
+
+	/**
+	 * Interfejs zadania wykonywanego przez wątek zapisu.
+	 */
+	interface Task {
+		/**
+		 * Metoda wykonująca zadanie.
+		 * 
+		 * @param indexer obiekt klasy Indexer należący do wątku zapisu
+		 * @throws IOException
+		 */
+		void run(Indexer indexer) throws IOException;
+	}
+
+	/**
+	 * Dostępne języki.
+	 */
+	private final Languages availableLanguages;
+
+	/**
+	 * Obiekt klasy Indexer, używany wyłącznie przez wątek zapisu.
+	 */
+	private final Indexer indexer;
+
+	/**
+	 * Wątek zapisu wykonujący po kolei wszystkie zmiany indeksu.
+	 */
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Liczba wątków obsługujących połączenia i długość kolejki czekających
+	 * połączeń, podawana we właściwości indexer.controlThreads.
+	 */
+	private final int controlThreads = Math.max(1,
+			Integer.getInteger("indexer.controlThreads", 4));
+
+	/**
+	 * Wątki obsługujące połączenia. Połączenia, które nie mieszczą się w
+	 * kolejce, są odrzucane.
+	 */
+	private final ExecutorService connections = new ThreadPoolExecutor(controlThreads,
+			controlThreads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(controlThreads), runnable -> {
+				Thread thread = new Thread(runnable, "control");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	/**
+	 * Maksymalny czas oczekiwania na linię polecenia w milisekundach.
+	 */
+	private final int readTimeout = Integer.getInteger("indexer.controlTimeoutMs", 5000);
+
+	/**
+	 * Gniazdo przyjmujące polecenia.
+	 */
+	private final ServerSocket control;
+
+	/**
+	 * Żeton, który klient musi przesłać z każdym poleceniem.
+	 */
+	private final String token;
+
+	/**
+	 * Obserwator katalogów.
+	 */
+	private final DirectoryWatcher directoryWatcher;
+
+	/**
+	 * Wątek obserwatora katalogów.
+	 */
+	private final Thread watcherThread;
+
+	/**
+	 * Zatrzask zwalniany po zamknięciu indeksu.
+	 */
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	/**
+	 * Informacja, czy rozpoczęto zatrzymywanie procesu.
+	 */
+	private boolean stopping = false;
+
+	/**
+	 * Konstruktor klasy IndexerDaemon. Otwiera indeks, rejestruje katalogi z
+	 * pliku info.txt i otwiera gniazdo na porcie podanym we właściwości
+	 * indexer.controlPort (domyślnie wolnym porcie przydzielonym przez system).
+	 * 
+	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 * @throws IOException
+	 */
+	public IndexerDaemon(Languages availableLanguages) throws IOException {
+		this.availableLanguages = availableLanguages;
+		indexer = new Indexer();
+		Path info = Paths.get(Main.infoFile);
+		if (!Files.exists(info)) {
+			Files.createFile(info);
+		}
+		directoryWatcher = new DirectoryWatcher(info, true);
+		watcherThread = new Thread(this::watch, "watcher");
+
+		control = new ServerSocket();
+		control.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+				Integer.getInteger("indexer.controlPort", 0)));
+		byte[] random = new byte[tokenBytes];
+		new SecureRandom().nextBytes(random);
+		token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+		writePortFile(control.getLocalPort(), token);
+	}
+
+	/**
+	 * Metoda zapisująca numer portu i żeton w pliku, który w systemach POSIX
+	 * może czytać tylko właściciel. Plik tworzony jest od nowa, tak aby nie
+	 * przejąć uprawnień pozostałego po poprzednim procesie.
+	 * 
+	 * @param port  numer portu
+	 * @param token żeton
+	 * @throws IOException
+	 */
+	private static void writePortFile(int port, String token) throws IOException {
+		Path file = Paths.get(portFile);
+		Files.deleteIfExists(file);
+		if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			Files.createFile(file, PosixFilePermissions
+					.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} else {
+			Files.createFile(file);
+		}
+		Files.write(file, (port + " " + token).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Metoda uruchamiająca obserwatora katalogów i przyjmująca polecenia aż do
+	 * zatrzymania procesu poleceniem stop lub sygnałem. Po sygnale proces czeka
+	 * na zamknięcie indeksu najwyżej shutdownTimeout sekund; niezatwierdzone
+	 * zmiany przepadają, a indeks zostaje w stanie z ostatniego zatwierdzenia.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			stop();
+			try {
+				if (!stopped.await(shutdownTimeout, TimeUnit.SECONDS)) {
+					System.err.println("Indexer did not stop in " + shutdownTimeout
+							+ " s, exiting with the last committed index");
+				}
+			} catch (InterruptedException e) {
+			}
+		}));
+		watcherThread.start();
+		System.err.println("Indexer listening on port " + control.getLocalPort());
+
+		while (!control.isClosed()) {
+			try {
+				Socket socket = control.accept();
+				try {
+					connections.execute(() -> serve(socket));
+				} catch (RejectedExecutionException e) {
+					reject(socket);
+				}
+			} catch (IOException e) {
+				if (!control.isClosed()) {
+					System.err.println("Control connection failed: " + e.getMessage());
+				}
+			}
+		}
+		stopped.await();
+	}
+
+	/**
+	 * Metoda zatrzymująca proces. Nowe polecenia nie są przyjmowane, obserwator
+	 * stosuje zebrane zmiany, a polecenia oczekujące w kolejce są wykonywane
+	 * przed zamknięciem indeksu.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (stopping) {
+				return;
+			}
+			stopping = true;
+		}
+		new Thread(this::shutdown, "shutdown").start();
+	}
+
+	/**
+	 * Metoda wykonująca kolejne kroki zatrzymywania procesu.
+	 */
+	private void shutdown() {
+		try {
+			control.close();
+		} catch (IOException e) {
+		}
+		watcherThread.interrupt();
+		try {
+			watcherThread.join();
+			write(Indexer::closeIndexWriters);
+			System.err.println("Indexer stopped");
+		} catch (IOException e) {
+			System.err.println("Could not close the index: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			writer.shutdown();
+			connections.shutdown();
+			try {
+				writer.awaitTermination(shutdownTimeout, TimeUnit.SECONDS);
+				Files.deleteIfExists(Paths.get(portFile));
+			} catch (InterruptedException | IOException e) {
+			}
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Metoda wykonywana przez wątek obserwatora katalogów.
+	 */
+	private void watch() {
+		try {
+			directoryWatcher.processEvents(this, availableLanguages);
+		} catch (IOException e) {
+			System.err.println("Directory watcher stopped: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Metoda przekazująca zadanie wątkowi zapisu i czekająca na jego
+	 * wykonanie. Przerwanie oczekującego wątku nie przerywa zadania.
+	 * 
+	 * @param task zadanie
+	 * @throws IOException wyjątek zgłoszony przez zadanie lub zgłaszany, gdy
+	 *                     proces jest zatrzymany
+	 */
+	void write(Task task) throws IOException {
+		Future<?> result;
+		try {
+			result = writer.submit(() -> {
+				task.run(indexer);
+				return null;
+			});
+		} catch (RejectedExecutionException e) {
+			throw new IOException("Indexer is shutting down");
+		}
+
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					result.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IOException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Metoda przekazująca zadanie wątkowi zapisu i czekająca na jego
+	 * wykonanie, a następnie wypisująca liczniki indeksowania zebrane w czasie
+	 * wykonywania zadania, o ile są wymagane. Zadania wykonywane są po kolei,
+	 * więc liczniki nie obejmują innych zmian.
+	 * 
+	 * @param task   zadanie
+	 * @param stats  informacja, czy wypisać liczniki
+	 * @param output wyjście komunikatów dla klienta
+	 * @throws IOException
+	 */
+	private void write(Task task, boolean stats, PrintWriter output) throws IOException {
+		IndexerStats[] window = new IndexerStats[1];
+		write(indexer -> {
+			window[0] = stats ? indexer.stats().openWindow() : null;
+			try {
+				task.run(indexer);
+			} finally {
+				indexer.stats().closeWindow();
+			}
+		});
+		if (window[0] != null) {
+			output.println(window[0]);
+		}
+	}
+
+	/**
+	 * Metoda odrzucająca połączenie, dla którego zabrakło wątku.
+	 * 
+	 * @param socket gniazdo połączenia
+	 */
+	private static void reject(Socket socket) {
+		try (Socket connection = socket;
+				PrintWriter output = new PrintWriter(new OutputStreamWriter(
+						connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			output.println("ERROR Indexer is busy");
+		} catch (IOException e) {
+			System.err.println("Control connection failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Metoda obsługująca pojedyncze połączenie: wczytuje polecenie, sprawdza
+	 * żeton, wykonuje polecenie i odsyła wynik. Klient, który nie przyśle
+	 * polecenia w czasie readTimeout, jest rozłączany, tak aby nie zajmował
+	 * wątku.
+	 * 
+	 * @param socket gniazdo połączenia
+	 */
+	private void serve(Socket socket) {
+		try (Socket connection = socket;
+				BufferedReader input = new BufferedReader(new InputStreamReader(
+						connection.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter output = new PrintWriter(new OutputStreamWriter(
+						connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			connection.setSoTimeout(readTimeout);
+			String line = input.readLine();
+			int separator = (line == null) ? -1 : line.indexOf(' ');
+			String given = (separator < 0) ? "" : line.substring(0, separator);
+			if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+					given.getBytes(StandardCharsets.UTF_8))) {
+				System.err.println("Rejected control command without a valid token");
+				output.println("ERROR Unauthorized");
+				return;
+			}
+			try {
+				execute(line.substring(separator + 1), output);
+				output.println("OK");
+			} catch (IOException | RuntimeException e) {
+				output.println("ERROR " + e.getMessage());
+			}
+		} catch (IOException e) {
+			System.err.println("Control connection failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Metoda wykonująca polecenie. Polecenia zmieniające indeks wykonywane są
+	 * przez wątek zapisu i zatwierdzane przed odesłaniem odpowiedzi.
+	 * 
+	 * @param line   linia z poleceniem
+	 * @param output wyjście komunikatów dla klienta
+	 * @throws IOException
+	 */
+	private void execute(String line, PrintWriter output) throws IOException {
+		int separator = line.indexOf(' ');
+		String command = (separator < 0) ? line : line.substring(0, separator);
+		String argument = (separator < 0) ? "" : line.substring(separator + 1);
+		boolean stats = argument.equals(statsOption) || argument.startsWith(statsOption + " ");
+		if (stats) {
+			argument = argument.substring(Math.min(argument.length(), statsOption.length() + 1));
+		}
+
+		switch (command) {
+		case "ping":
+			break;
+		case "add":
+			Path directory = absolute(argument);
+			if (!Files.isReadable(directory)) {
+				throw new IOException("Files are not readable.");
+			}
+			write(indexer -> {
+				indexer.bulkIndexDocuments(directory, availableLanguages,
+						Integer.getInteger("indexer.bulkShards", 0));
+				indexer.commit();
+				Main.recordDirectory(directory);
+			}, stats, output);
+			directoryWatcher.watch(directory);
+			break;
+		case "rm":
+			String path = absolute(argument).toString();
+			write(indexer -> {
+				indexer.removeDocuments(path);
+				indexer.commit();
+			});
+			break;
+		case "purge":
+			write(indexer -> {
+				indexer.deleteAllIndexedFiles();
+				indexer.commit();
+			});
+			break;
+		case "reindex":
+			write(indexer -> {
+				indexer.reindexDocuments(Main.recordedDirectories(), availableLanguages);
+				indexer.commit();
+			}, stats, output);
+			break;
+		case "stop":
+			stop();
+			break;
+		default:
+			throw new IOException("Unknown command " + command);
+		}
+	}
+
+	/**
+	 * Metoda sprawdzająca argument polecenia. Katalog bieżący procesu może być
+	 * inny niż klienta, więc przyjmowane są tylko ścieżki bezwzględne.
+	 * 
+	 * @param argument argument polecenia
+	 * @return ścieżka
+	 * @throws IOException jeśli ścieżka jest pusta lub względna
+	 */
+	private static Path absolute(String argument) throws IOException {
+		if (argument.isEmpty()) {
+			throw new IOException("Missing path");
+		}
+		Path path = Paths.get(argument);
+		if (!path.isAbsolute()) {
+			throw new IOException("Path " + argument + " is not absolute");
+		}
+		return path;
+	}
+
+	/**
+	 * Metoda przesyłająca polecenie wraz z żetonem do działającego procesu i
+	 * wypisująca jego odpowiedź: komunikaty na standardowe wyjście, a błąd na
+	 * standardowe wyjście błędów.
+	 * 
+	 * @param command polecenie wraz z argumentem
+	 * @return 0, jeśli polecenie zostało wykonane, 1, jeśli zakończyło się
+	 *         błędem, lub -1, jeśli żaden proces nie działa
+	 * @throws IOException
+	 */
+	static int send(String command) throws IOException {
+		int port;
+		String token;
+		try {
+			String[] fields = new String(Files.readAllBytes(Paths.get(portFile)),
+					StandardCharsets.UTF_8).trim().split(" ");
+			if (fields.length != 2) {
+				return -1;
+			}
+			port = Integer.parseInt(fields[0]);
+			token = fields[1];
+		} catch (NoSuchFileException | NumberFormatException e) {
+			return -1;
+		}
+
+		try (Socket socket = new Socket()) {
+			try {
+				socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+						connectTimeout);
+			} catch (ConnectException e) {
+				return -1;
+			}
+			PrintWriter output = new PrintWriter(
+					new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			BufferedReader input = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			output.println(token + " " + command);
+
+			String line;
+			while ((line = input.readLine()) != null) {
+				if (line.equals("OK")) {
+					return 0;
+				} else if (line.startsWith("ERROR ")) {
+					System.err.println(line.substring("ERROR ".length()));
+					return 1;
+				}
+				System.out.println(line);
+			}
+		} catch (SocketException e) {
+			System.err.println("Connection to indexer lost: " + e.getMessage());
+			return 1;
+		}
+		System.err.println("Connection to indexer lost");
+		return 1;
+	}
+}
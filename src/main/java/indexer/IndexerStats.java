@@ -0,0 +1,575 @@
+package indexer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Klasa zbierająca liczniki i czasy kolejnych etapów indeksowania: parsowania,
+ * wykrywania języka, analizy i dodawania dokumentów oraz zatwierdzania zmian.
+ * Liczniki mogą być zwiększane równocześnie przez wiele wątków i są
+ * udostępniane przez JMX pod nazwą indexer:type=IndexerStats.
+ * 
+ * Liczniki pojedynczej operacji zbierane są w osobnym obiekcie okna, do
+ * którego w czasie operacji trafiają wszystkie odnotowywane zdarzenia.
+ * Różnica liczników przed i po operacji nie wystarcza, bo wartości
+ * największe (kolejki, budżetu, zatwierdzania) nie dają się odjąć.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class IndexerStats implements IndexerStatsMBean {
+	/**
+	 * Nazwa, pod którą liczniki rejestrowane są w JMX.
+	 */
+	private static final String objectName = "indexer:type=IndexerStats";
+
+	/**
+	 * Liczba zaindeksowanych plików.
+	 */
+	private final LongAdder files = new LongAdder();
+
+	/**
+	 * Łączny rozmiar zaindeksowanych plików w bajtach.
+	 */
+	private final LongAdder bytes = new LongAdder();
+
+	/**
+	 * Liczby plików, których nie udało się zaindeksować, według typu MIME.
+	 */
+	private final Map<String, LongAdder> failures = new ConcurrentHashMap<String, LongAdder>();
+
+	/**
+	 * Liczby plików pominiętych przed parsowaniem, według reguły filtra.
+	 */
+	private final Map<String, LongAdder> skipped = new ConcurrentHashMap<String, LongAdder>();
+
+	/**
+	 * Łączny czas parsowania w nanosekundach.
+	 */
+	private final LongAdder parseNanos = new LongAdder();
+
+	/**
+	 * Łączny czas wykrywania języka w nanosekundach.
+	 */
+	private final LongAdder detectNanos = new LongAdder();
+
+	/**
+	 * Łączny czas analizy i dodawania dokumentów w nanosekundach.
+	 */
+	private final LongAdder indexNanos = new LongAdder();
+
+	/**
+	 * Liczba zatwierdzeń zmian.
+	 */
+	private final LongAdder commits = new LongAdder();
+
+	/**
+	 * Łączny czas zatwierdzania zmian w nanosekundach.
+	 */
+	private final LongAdder commitNanos = new LongAdder();
+
+	/**
+	 * Najdłuższy czas zatwierdzania zmian w nanosekundach.
+	 */
+	private final AtomicLong maxCommitNanos = new AtomicLong();
+
+	/**
+	 * Bieżąca liczba plików w kolejce do ekstrakcji.
+	 */
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	/**
+	 * Największa liczba plików w kolejce do ekstrakcji.
+	 */
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	/**
+	 * Rozmiar budżetu pamięci w bajtach.
+	 */
+	private volatile long budget;
+
+	/**
+	 * Bieżące wykorzystanie budżetu pamięci w bajtach.
+	 */
+	private final AtomicLong budgetUsed = new AtomicLong();
+
+	/**
+	 * Największe wykorzystanie budżetu pamięci w bajtach.
+	 */
+	private final AtomicLong maxBudgetUsed = new AtomicLong();
+
+	/**
+	 * Łączny czas oczekiwania na budżet pamięci w nanosekundach.
+	 */
+	private final LongAdder budgetWaitNanos = new LongAdder();
+
+	/**
+	 * Liczba dużych dokumentów.
+	 */
+	private final LongAdder largeDocuments = new LongAdder();
+
+	/**
+	 * Liczba dokumentów, których parsowanie przekroczyło limit czasu.
+	 */
+	private final LongAdder parseTimeouts = new LongAdder();
+
+	/**
+	 * Liczba pominiętych plików z kwarantanny.
+	 */
+	private final LongAdder quarantined = new LongAdder();
+
+	/**
+	 * Liczba porzuconych po przekroczeniu limitu czasu wątków parsera, które
+	 * jeszcze działają.
+	 */
+	private final AtomicLong abandonedParsers = new AtomicLong();
+
+	/**
+	 * Czas rozpoczęcia zbierania liczników w nanosekundach.
+	 */
+	private volatile long start = System.nanoTime();
+
+	/**
+	 * Liczniki bieżącej operacji, do których przekazywane są zdarzenia, lub
+	 * null.
+	 */
+	private volatile IndexerStats window;
+
+	/**
+	 * Metoda rejestrująca liczniki w JMX. Wcześniej zarejestrowane liczniki
+	 * innego indeksera są zastępowane.
+	 */
+	public void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(objectName);
+			try {
+				server.registerMBean(this, name);
+			} catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(name);
+				server.registerMBean(this, name);
+			}
+		} catch (JMException e) {
+			System.err.println("Could not register indexer statistics");
+		}
+	}
+
+	/**
+	 * Metoda wyrejestrowująca liczniki z JMX.
+	 */
+	public void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(new ObjectName(objectName));
+		} catch (JMException e) {
+		}
+	}
+
+	/**
+	 * Metoda odnotowująca zaindeksowanie pliku.
+	 * 
+	 * @param size rozmiar pliku w bajtach
+	 */
+	void indexed(long size) {
+		record(stats -> {
+			stats.files.increment();
+			stats.bytes.add(size);
+		});
+	}
+
+	/**
+	 * Metoda odnotowująca nieudane indeksowanie pliku.
+	 * 
+	 * @param type typ MIME pliku
+	 */
+	void failed(String type) {
+		record(stats -> stats.failures.computeIfAbsent(type, key -> new LongAdder()).increment());
+	}
+
+	/**
+	 * Metoda odnotowująca pominięcie pliku przez regułę filtra.
+	 * 
+	 * @param rule nazwa reguły
+	 */
+	void skipped(String rule) {
+		record(stats -> stats.skipped.computeIfAbsent(rule, key -> new LongAdder()).increment());
+	}
+
+	/**
+	 * Metoda odnotowująca czas parsowania.
+	 * 
+	 * @param nanos czas w nanosekundach
+	 */
+	void parsed(long nanos) {
+		record(stats -> stats.parseNanos.add(nanos));
+	}
+
+	/**
+	 * Metoda odnotowująca czas wykrywania języka.
+	 * 
+	 * @param nanos czas w nanosekundach
+	 */
+	void detected(long nanos) {
+		record(stats -> stats.detectNanos.add(nanos));
+	}
+
+	/**
+	 * Metoda odnotowująca czas analizy i dodawania dokumentu.
+	 * 
+	 * @param nanos czas w nanosekundach
+	 */
+	void added(long nanos) {
+		record(stats -> stats.indexNanos.add(nanos));
+	}
+
+	/**
+	 * Metoda odnotowująca zatwierdzenie zmian.
+	 * 
+	 * @param nanos czas w nanosekundach
+	 */
+	void committed(long nanos) {
+		record(stats -> {
+			stats.commits.increment();
+			stats.commitNanos.add(nanos);
+			stats.maxCommitNanos.accumulateAndGet(nanos, Math::max);
+		});
+	}
+
+	/**
+	 * Metoda odnotowująca bieżącą liczbę plików w kolejce do ekstrakcji.
+	 * 
+	 * @param depth liczba plików
+	 */
+	void queued(int depth) {
+		record(stats -> {
+			stats.queueDepth.set(depth);
+			stats.maxQueueDepth.accumulateAndGet(depth, Math::max);
+		});
+	}
+
+	/**
+	 * Metoda odnotowująca rozmiar budżetu pamięci.
+	 * 
+	 * @param bytes rozmiar w bajtach
+	 */
+	void budget(long bytes) {
+		record(stats -> stats.budget = bytes);
+	}
+
+	/**
+	 * Metoda odnotowująca bieżące wykorzystanie budżetu pamięci.
+	 * 
+	 * @param bytes rozmiar w bajtach
+	 */
+	void budgetUsed(long bytes) {
+		record(stats -> {
+			stats.budgetUsed.set(bytes);
+			stats.maxBudgetUsed.accumulateAndGet(bytes, Math::max);
+		});
+	}
+
+	/**
+	 * Metoda odnotowująca czas oczekiwania na budżet pamięci.
+	 * 
+	 * @param nanos czas w nanosekundach
+	 */
+	void budgetWaited(long nanos) {
+		record(stats -> stats.budgetWaitNanos.add(nanos));
+	}
+
+	/**
+	 * Metoda odnotowująca przekazanie dużego dokumentu do osobnego wątku.
+	 */
+	void largeDocument() {
+		record(stats -> stats.largeDocuments.increment());
+	}
+
+	/**
+	 * Metoda odnotowująca przekroczenie limitu czasu parsowania dokumentu.
+	 */
+	void timedOut() {
+		record(stats -> stats.parseTimeouts.increment());
+	}
+
+	/**
+	 * Metoda odnotowująca porzucenie wątku parsera, który nie zakończył pracy
+	 * po przekroczeniu limitu czasu.
+	 */
+	void parserAbandoned() {
+		record(stats -> stats.abandonedParsers.incrementAndGet());
+	}
+
+	/**
+	 * Metoda odnotowująca zakończenie pracy porzuconego wątku parsera.
+	 */
+	void abandonedParserFinished() {
+		record(stats -> stats.abandonedParsers.decrementAndGet());
+	}
+
+	/**
+	 * Metoda odnotowująca pominięcie pliku z kwarantanny.
+	 */
+	void quarantined() {
+		record(stats -> stats.quarantined.increment());
+	}
+
+	/**
+	 * Metoda odnotowująca zdarzenie w licznikach i w licznikach bieżącej
+	 * operacji, jeśli są zbierane.
+	 * 
+	 * @param event zmiana liczników wykonywana dla obu obiektów
+	 */
+	private void record(Consumer<IndexerStats> event) {
+		event.accept(this);
+		IndexerStats window = this.window;
+		if (window != null) {
+			event.accept(window);
+		}
+	}
+
+	/**
+	 * Metoda rozpoczynająca zbieranie liczników pojedynczej operacji. W danej
+	 * chwili zbierane są liczniki co najwyżej jednej operacji.
+	 * 
+	 * @return liczniki operacji
+	 */
+	IndexerStats openWindow() {
+		IndexerStats window = new IndexerStats();
+		window.budget = budget;
+		window.budgetUsed(budgetUsed.get());
+		window.abandonedParsers.set(abandonedParsers.get());
+		this.window = window;
+		return window;
+	}
+
+	/**
+	 * Metoda kończąca zbieranie liczników operacji.
+	 */
+	void closeWindow() {
+		window = null;
+	}
+
+	@Override
+	public long getFiles() {
+		return files.sum();
+	}
+
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	@Override
+	public double getFilesPerSecond() {
+		return files.sum() / seconds();
+	}
+
+	@Override
+	public double getBytesPerSecond() {
+		return bytes.sum() / seconds();
+	}
+
+	@Override
+	public long getFailures() {
+		return sum(failures);
+	}
+
+	@Override
+	public String getFailuresByType() {
+		return format(failures);
+	}
+
+	@Override
+	public long getSkipped() {
+		return sum(skipped);
+	}
+
+	@Override
+	public String getSkippedByRule() {
+		return format(skipped);
+	}
+
+	/**
+	 * Metoda dająca w wyniku sumę liczników z mapy.
+	 * 
+	 * @param counts mapa liczników
+	 * @return suma liczników
+	 */
+	private static long sum(Map<String, LongAdder> counts) {
+		long sum = 0;
+		for (LongAdder count : counts.values()) {
+			sum += count.sum();
+		}
+		return sum;
+	}
+
+	/**
+	 * Metoda dająca w wyniku liczniki z mapy w kolejności kluczy.
+	 * 
+	 * @param counts mapa liczników
+	 * @return napis postaci klucz=liczba, klucz=liczba
+	 */
+	private static String format(Map<String, LongAdder> counts) {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(counts)
+				.entrySet()) {
+			if (builder.length() > 0) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue().sum());
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public long getParseMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(parseNanos.sum());
+	}
+
+	@Override
+	public long getDetectMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(detectNanos.sum());
+	}
+
+	@Override
+	public long getIndexMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(indexNanos.sum());
+	}
+
+	@Override
+	public long getCommits() {
+		return commits.sum();
+	}
+
+	@Override
+	public long getCommitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(commitNanos.sum());
+	}
+
+	@Override
+	public long getMaxCommitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxCommitNanos.get());
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	@Override
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	@Override
+	public long getMemoryBudgetBytes() {
+		return budget;
+	}
+
+	@Override
+	public long getMemoryBudgetUsedBytes() {
+		return budgetUsed.get();
+	}
+
+	@Override
+	public long getMaxMemoryBudgetUsedBytes() {
+		return maxBudgetUsed.get();
+	}
+
+	@Override
+	public long getMemoryBudgetWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(budgetWaitNanos.sum());
+	}
+
+	@Override
+	public long getLargeDocuments() {
+		return largeDocuments.sum();
+	}
+
+	@Override
+	public long getParseTimeouts() {
+		return parseTimeouts.sum();
+	}
+
+	@Override
+	public long getQuarantined() {
+		return quarantined.sum();
+	}
+
+	@Override
+	public long getAbandonedParserThreads() {
+		return abandonedParsers.get();
+	}
+
+	@Override
+	public void reset() {
+		files.reset();
+		bytes.reset();
+		failures.clear();
+		skipped.clear();
+		parseNanos.reset();
+		detectNanos.reset();
+		indexNanos.reset();
+		commits.reset();
+		commitNanos.reset();
+		maxCommitNanos.set(0);
+		queueDepth.set(0);
+		maxQueueDepth.set(0);
+		maxBudgetUsed.set(budgetUsed.get());
+		budgetWaitNanos.reset();
+		largeDocuments.reset();
+		parseTimeouts.reset();
+		quarantined.reset();
+		start = System.nanoTime();
+	}
+
+	/**
+	 * Metoda dająca w wyniku czas od rozpoczęcia zbierania liczników w
+	 * sekundach.
+	 * 
+	 * @return czas w sekundach
+	 */
+	private double seconds() {
+		return Math.max(System.nanoTime() - start, 1) / 1e9;
+	}
+
+	/**
+	 * Metoda dająca w wyniku podsumowanie liczników, po jednym w linii.
+	 * 
+	 * @return podsumowanie
+	 */
+	@Override
+	public String toString() {
+		String separator = System.lineSeparator();
+		return String.format(Locale.ROOT,
+				"Files: %d (%.1f files/s)%sBytes: %d (%.1f MB/s)%sFailures: %d%s%sSkipped: %d%s%s"
+						+ "Parse: %d ms%sLanguage detection: %d ms%sAnalysis and indexing: %d ms%s"
+						+ "Commits: %d (%d ms, max %d ms)%sMax queue depth: %d%s"
+						+ "Memory budget: max %.1f of %.1f MB used (%.0f%%), waited %d ms%s"
+						+ "Large documents: %d%sParse timeouts: %d, quarantined files skipped: %d, "
+						+ "abandoned parser threads: %d",
+				getFiles(), getFilesPerSecond(), separator, getBytes(),
+				getBytesPerSecond() / (1024 * 1024), separator, getFailures(),
+				failures.isEmpty() ? "" : " (" + getFailuresByType() + ")", separator,
+				getSkipped(), skipped.isEmpty() ? "" : " (" + getSkippedByRule() + ")", separator,
+				getParseMillis(), separator, getDetectMillis(), separator, getIndexMillis(),
+				separator, getCommits(), getCommitMillis(), getMaxCommitMillis(), separator,
+				getMaxQueueDepth(), separator, maxBudgetUsed.get() / (1024.0 * 1024),
+				budget / (1024.0 * 1024), 100.0 * maxBudgetUsed.get() / Math.max(budget, 1),
+				getMemoryBudgetWaitMillis(), separator, getLargeDocuments(), separator,
+				getParseTimeouts(), getQuarantined(), getAbandonedParserThreads());
+	}
+}
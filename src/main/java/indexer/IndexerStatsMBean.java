@@ -0,0 +1,194 @@
+package indexer;
+
+/**
+ * Interfejs udostępniający przez JMX liczniki i czasy kolejnych etapów
+ * indeksowania.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public interface IndexerStatsMBean {
+	/**
+	 * Metoda dająca w wyniku liczbę zaindeksowanych plików.
+	 * 
+	 * @return liczba plików
+	 */
+	long getFiles();
+
+	/**
+	 * Metoda dająca w wyniku łączny rozmiar zaindeksowanych plików w bajtach.
+	 * 
+	 * @return liczba bajtów
+	 */
+	long getBytes();
+
+	/**
+	 * Metoda dająca w wyniku średnią liczbę plików indeksowanych na sekundę.
+	 * 
+	 * @return liczba plików na sekundę
+	 */
+	double getFilesPerSecond();
+
+	/**
+	 * Metoda dająca w wyniku średnią liczbę bajtów indeksowanych na sekundę.
+	 * 
+	 * @return liczba bajtów na sekundę
+	 */
+	double getBytesPerSecond();
+
+	/**
+	 * Metoda dająca w wyniku liczbę plików, których nie udało się zaindeksować.
+	 * 
+	 * @return liczba plików
+	 */
+	long getFailures();
+
+	/**
+	 * Metoda dająca w wyniku liczby plików, których nie udało się zaindeksować,
+	 * według typu MIME.
+	 * 
+	 * @return napis postaci typ=liczba, typ=liczba
+	 */
+	String getFailuresByType();
+
+	/**
+	 * Metoda dająca w wyniku liczbę plików pominiętych przed parsowaniem przez
+	 * reguły filtra.
+	 * 
+	 * @return liczba plików
+	 */
+	long getSkipped();
+
+	/**
+	 * Metoda dająca w wyniku liczby plików pominiętych przed parsowaniem według
+	 * reguły filtra.
+	 * 
+	 * @return napis postaci reguła=liczba, reguła=liczba
+	 */
+	String getSkippedByRule();
+
+	/**
+	 * Metoda dająca w wyniku łączny czas parsowania plików w milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getParseMillis();
+
+	/**
+	 * Metoda dająca w wyniku łączny czas wykrywania języka w milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getDetectMillis();
+
+	/**
+	 * Metoda dająca w wyniku łączny czas analizy i dodawania dokumentów do
+	 * indeksu w milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getIndexMillis();
+
+	/**
+	 * Metoda dająca w wyniku liczbę zatwierdzeń zmian w indeksie.
+	 * 
+	 * @return liczba zatwierdzeń
+	 */
+	long getCommits();
+
+	/**
+	 * Metoda dająca w wyniku łączny czas zatwierdzania zmian w milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getCommitMillis();
+
+	/**
+	 * Metoda dająca w wyniku najdłuższy czas zatwierdzania zmian w
+	 * milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getMaxCommitMillis();
+
+	/**
+	 * Metoda dająca w wyniku bieżącą liczbę plików w kolejce do ekstrakcji.
+	 * 
+	 * @return liczba plików
+	 */
+	int getQueueDepth();
+
+	/**
+	 * Metoda dająca w wyniku największą liczbę plików w kolejce do ekstrakcji.
+	 * 
+	 * @return liczba plików
+	 */
+	int getMaxQueueDepth();
+
+	/**
+	 * Metoda dająca w wyniku rozmiar budżetu pamięci na tekst dokumentów w
+	 * trakcie indeksowania.
+	 * 
+	 * @return rozmiar w bajtach
+	 */
+	long getMemoryBudgetBytes();
+
+	/**
+	 * Metoda dająca w wyniku bieżące wykorzystanie budżetu pamięci.
+	 * 
+	 * @return rozmiar w bajtach
+	 */
+	long getMemoryBudgetUsedBytes();
+
+	/**
+	 * Metoda dająca w wyniku największe wykorzystanie budżetu pamięci.
+	 * 
+	 * @return rozmiar w bajtach
+	 */
+	long getMaxMemoryBudgetUsedBytes();
+
+	/**
+	 * Metoda dająca w wyniku łączny czas oczekiwania wątków na budżet pamięci w
+	 * milisekundach.
+	 * 
+	 * @return czas w milisekundach
+	 */
+	long getMemoryBudgetWaitMillis();
+
+	/**
+	 * Metoda dająca w wyniku liczbę dużych dokumentów indeksowanych w osobnym
+	 * wątku.
+	 * 
+	 * @return liczba dokumentów
+	 */
+	long getLargeDocuments();
+
+	/**
+	 * Metoda dająca w wyniku liczbę dokumentów, których parsowanie przekroczyło
+	 * limit czasu.
+	 * 
+	 * @return liczba dokumentów
+	 */
+	long getParseTimeouts();
+
+	/**
+	 * Metoda dająca w wyniku liczbę plików pominiętych, ponieważ znajdują się w
+	 * kwarantannie.
+	 * 
+	 * @return liczba plików
+	 */
+	long getQuarantined();
+
+	/**
+	 * Metoda dająca w wyniku liczbę porzuconych po przekroczeniu limitu czasu
+	 * wątków parsera, które wciąż działają.
+	 * 
+	 * @return liczba wątków
+	 */
+	long getAbandonedParserThreads();
+
+	/**
+	 * Metoda zerująca wszystkie liczniki.
+	 */
+	void reset();
+}
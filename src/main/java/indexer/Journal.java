@@ -0,0 +1,144 @@
+package indexer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Klasa dziennika postępu dodawania katalogu. Pierwsza linia pliku to
+ * dodawany katalog, a kolejne to katalogi, których całe poddrzewa zostały już
+ * zaindeksowane i zatwierdzone. Dziennik istnieje tylko do zakończenia
+ * dodawania, więc jego obecność oznacza, że poprzednie dodawanie zostało
+ * przerwane i można je wznowić.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class Journal {
+	/**
+	 * Ścieżka do pliku dziennika.
+	 */
+	private final Path file;
+
+	/**
+	 * Dodawany katalog.
+	 */
+	private final Path root;
+
+	/**
+	 * Katalogi, których poddrzewa zostały zatwierdzone.
+	 */
+	private final Set<String> completed = new HashSet<String>();
+
+	/**
+	 * Informacja, czy dodawanie jest wznawiane.
+	 */
+	private boolean resumed;
+
+	/**
+	 * Informacja, czy plik dziennika dotyczy dodawanego katalogu.
+	 */
+	private boolean started;
+
+	/**
+	 * Konstruktor klasy Journal, wczytujący dziennik przerwanego dodawania tego
+	 * samego katalogu. Dziennik innego katalogu jest porzucany.
+	 * 
+	 * @param file ścieżka do pliku dziennika
+	 * @param root dodawany katalog
+	 * @throws IOException
+	 */
+	public Journal(Path file, Path root) throws IOException {
+		this.file = file;
+		this.root = root;
+		if (!Files.exists(file)) {
+			return;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String first = reader.readLine();
+			if (root.toString().equals(first)) {
+				resumed = true;
+				started = true;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					completed.add(line);
+				}
+			} else if (first != null) {
+				System.err.println(
+						"Adding of " + first + " was interrupted, add it again to finish");
+			}
+		}
+		if (resumed) {
+			System.err.println("Resuming adding of " + root + " (" + completed.size()
+					+ " directories done)");
+		}
+	}
+
+	/**
+	 * Metoda informująca, czy dodawanie jest wznawiane po przerwaniu.
+	 * 
+	 * @return true, jeśli dodawanie jest wznawiane
+	 */
+	boolean resumed() {
+		return resumed;
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy poddrzewo katalogu zostało już zatwierdzone.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 * @return true, jeśli poddrzewo zostało zatwierdzone
+	 */
+	boolean completed(Path directory) {
+		return completed.contains(directory.toString());
+	}
+
+	/**
+	 * Metoda dopisująca do dziennika katalogi, których poddrzewa zostały
+	 * zatwierdzone, i czekająca na zapisanie ich na dysku. Pierwszy zapis
+	 * zastępuje dziennik innego katalogu.
+	 * 
+	 * @param directories ścieżki do katalogów
+	 * @throws IOException
+	 */
+	void append(List<Path> directories) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		if (!started) {
+			lines.append(root).append('\n');
+		}
+		for (Path directory : directories) {
+			lines.append(directory).append('\n');
+			completed.add(directory.toString());
+		}
+
+		try (FileChannel channel = started
+				? FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+				: FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		started = true;
+	}
+
+	/**
+	 * Metoda usuwająca dziennik po zakończeniu dodawania.
+	 * 
+	 * @throws IOException
+	 */
+	void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+}
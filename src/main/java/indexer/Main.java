@@ -9,6 +9,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import common.Settings;
 
 /**
  * Klasa zawierająca metodę main.
@@ -20,15 +25,23 @@ public class Main {
 	/**
 	 * Ścieżka do pliku zawierającego nazwy dodanych katalogów.
 	 */
-	private static final String infoFile = "index/info.txt";
+	static final String infoFile = "index/info.txt";
 
 	/**
-	 * Metoda uruchamia indekser z podanym argumentem add.
+	 * Metoda uruchamia indekser z podanym argumentem add. Jeśli ustawiona jest
+	 * właściwość indexer.bulkShards większa niż 1, katalog indeksowany jest
+	 * wsadowo w podanej liczbie tymczasowych indeksów budowanych równolegle.
+	 * Dokumenty zapisane wcześniej pod ścieżką w postaci podanej przez
+	 * użytkownika są usuwane, aby nie zostały zdublowane.
 	 * 
 	 * @param directory          napis zawierający nazwę dodawanego katalogu
+	 * @param given              ścieżka w postaci podanej przez użytkownika
 	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 * @param stats              informacja, czy wypisać podsumowanie liczników
+	 *                           indeksowania
 	 */
-	private static void runIndexerWithCommandAdd(String directory, Languages availableLanguages) {
+	private static void runIndexerWithCommandAdd(String directory, String given,
+			Languages availableLanguages, boolean stats) {
 		Path directoryPath = Paths.get(directory);
 		if (!Files.isReadable(directoryPath)) {
 			System.err.println("Files are not readable.");
@@ -36,17 +49,20 @@ public class Main {
 		} else {
 			try {
 				Indexer indexer = new Indexer();
-				indexer.indexDocuments(directoryPath, availableLanguages);
+				indexer.removeLegacyDocuments(given);
+				indexer.bulkIndexDocuments(directoryPath, availableLanguages,
+						Integer.getInteger("indexer.bulkShards", 0));
 				indexer.closeIndexWriters();
+				if (stats) {
+					System.out.println(indexer.stats());
+				}
 			} catch (IOException e) {
 				System.err.println("Indexer cannot add directory " + directory);
 				System.exit(1);
 			}
 
 			try {
-				BufferedWriter writer = new BufferedWriter(new FileWriter(infoFile, true));
-				writer.append(directoryPath.toString() + "\n");
-				writer.close();
+				recordDirectory(directoryPath);
 			} catch (IOException e) {
 				System.err.println("Could not write to " + infoFile);
 				System.exit(1);
@@ -54,6 +70,101 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Metoda dopisująca katalog do pliku zawierającego nazwy dodanych katalogów.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 * @throws IOException
+	 */
+	static void recordDirectory(Path directory) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(infoFile, true));
+		writer.append(directory.toString() + "\n");
+		writer.close();
+	}
+
+	/**
+	 * Metoda wczytująca nazwy dodanych katalogów.
+	 * 
+	 * @return lista ścieżek do katalogów
+	 * @throws IOException
+	 */
+	static List<Path> recordedDirectories() throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(new File(infoFile)));
+		List<Path> directories = new ArrayList<Path>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			directories.add(Paths.get(line));
+		}
+		reader.close();
+		return directories;
+	}
+
+	/**
+	 * Metoda przekazująca polecenie do działającego w tle procesu indeksera.
+	 * Jeśli proces nie działa, daje w wyniku false i polecenie należy wykonać
+	 * samodzielnie; w przeciwnym razie kończy program z błędem, jeśli
+	 * wykonanie polecenia się nie powiodło. Z opcją --stats proces odsyła
+	 * liczniki indeksowania zebrane w czasie wykonywania tego polecenia.
+	 * 
+	 * @param command  polecenie
+	 * @param argument argument polecenia lub pusty napis
+	 * @param stats    informacja, czy wypisać liczniki indeksowania polecenia
+	 * @return informacja, czy polecenie zostało przekazane
+	 */
+	private static boolean sendToDaemon(String command, String argument, boolean stats) {
+		if (stats) {
+			argument = argument.isEmpty() ? "--stats" : "--stats " + argument;
+		}
+		try {
+			int status = IndexerDaemon.send(argument.isEmpty() ? command
+					: command + " " + argument);
+			if (status > 0) {
+				System.exit(status);
+			}
+			return status == 0;
+		} catch (IOException e) {
+			System.err.println("Could not connect to indexer: " + e.getMessage());
+			System.exit(1);
+			return false;
+		}
+	}
+
+	/**
+	 * Metoda dająca w wyniku ścieżkę bezwzględną dla ścieżki podanej przez
+	 * użytkownika. Proces działający w tle może mieć inny katalog bieżący, więc
+	 * przesyłane są do niego wyłącznie ścieżki bezwzględne; bez niego indekser
+	 * dostaje tę samą postać ścieżki, aby dokumenty zapisane w obu trybach
+	 * można było odnaleźć i usunąć. Dokumenty zapisane przez starsze wersje
+	 * indeksera pod ścieżką w postaci podanej przez użytkownika usuwa bez
+	 * procesu działającego w tle metoda Indexer.removeLegacyDocuments().
+	 * 
+	 * @param path ścieżka podana przez użytkownika
+	 * @return ścieżka bezwzględna
+	 */
+	private static String absolutePath(String path) {
+		return Paths.get(path).toAbsolutePath().normalize().toString();
+	}
+
+	/**
+	 * Uruchamia indekser działający w tle, o ile nie działa już inny.
+	 * 
+	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 */
+	private static void runIndexerDaemon(Languages availableLanguages) {
+		try {
+			if (IndexerDaemon.send("ping") == 0) {
+				System.err.println("Indexer is already running");
+				System.exit(1);
+			}
+			new IndexerDaemon(availableLanguages).run();
+		} catch (IOException e) {
+			System.err.println("Could not run indexer: " + e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Uruchamia indekser z podanym argumentem purge.
 	 */
@@ -70,14 +181,17 @@ public class Main {
 	}
 
 	/**
-	 * Uruchamia indekser z podanym argumentem rm.
+	 * Uruchamia indekser z podanym argumentem rm. Usuwane są także dokumenty
+	 * zapisane pod ścieżką w postaci podanej przez użytkownika.
 	 * 
 	 * @param directoryToRemove napis reprezentujący nazwę katalogu do usunięcia
+	 * @param given             ścieżka w postaci podanej przez użytkownika
 	 */
-	private static void runIndexerWithCommandRm(String directoryToRemove) {
+	private static void runIndexerWithCommandRm(String directoryToRemove, String given) {
 		try {
 			Indexer indexer = new Indexer();
 			indexer.removeDocuments(directoryToRemove);
+			indexer.removeLegacyDocuments(given);
 			indexer.closeIndexWriters();
 		} catch (IOException e) {
 			System.err.println("Indexer cannot remove " + directoryToRemove);
@@ -103,63 +217,88 @@ public class Main {
 	}
 
 	/**
-	 * Uruchamia indekser z podanym argumentem reindex.
+	 * Uruchamia indekser z podanym argumentem reindex. Ekstraktowane są ponownie
+	 * tylko pliki dodane lub zmienione od poprzedniego indeksowania.
 	 * 
 	 * @param availableLanguages obiekt klasy Languages z dostępnymi językami
+	 * @param stats              informacja, czy wypisać podsumowanie liczników
+	 *                           indeksowania
 	 */
-	private static void runIndexerWithCommandReindex(Languages availableLanguages) {
+	private static void runIndexerWithCommandReindex(Languages availableLanguages,
+			boolean stats) {
 		try {
-			BufferedReader reader = new BufferedReader(new FileReader(new File(infoFile)));
-			String line;
 			Indexer indexer = new Indexer();
-			indexer.deleteAllIndexedFiles();
-
-			while ((line = reader.readLine()) != null) {
-				indexer.indexDocuments(Paths.get(line), availableLanguages);
-			}
-
+			indexer.reindexDocuments(recordedDirectories(), availableLanguages);
 			indexer.closeIndexWriters();
-			reader.close();
+			if (stats) {
+				System.out.println(indexer.stats());
+			}
 		} catch (IOException e) {
 
 		}
 	}
 
 	/**
-	 * Metoda main.
+	 * Metoda main. Uruchomiona bez argumentów działa jako indekser w tle, który
+	 * obserwuje dodane katalogi i przyjmuje polecenia pozostałych wywołań;
+	 * argument --stop zatrzymuje go. Polecenia --add, --rm, --purge i
+	 * --reindex są przekazywane do działającego indeksera, a jeśli żaden nie
+	 * działa, wykonywane samodzielnie. Argument --stats podany po --add lub
+	 * --reindex powoduje wypisanie po zakończeniu indeksowania podsumowania
+	 * liczników kolejnych etapów; te same liczniki są w trakcie pracy dostępne
+	 * przez JMX. Ustawienia wczytywane są z pliku config.properties, wspólnego z
+	 * wyszukiwarką.
 	 * 
 	 * @param args tablica argumentów podanych przy uruchamianiu programu
 	 */
 	public static void main(String[] args) {
+		try {
+			Settings.load();
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Could not read configuration: " + e.getMessage());
+			System.exit(1);
+		}
 		Languages availableLanguages = new Languages();
+		boolean stats = args.length > 1 && args[args.length - 1].equals("--stats")
+				&& (args[0].equals("--add") || args[0].equals("--reindex"));
+		if (stats) {
+			args = Arrays.copyOf(args, args.length - 1);
+		}
 		try {
 			switch (args.length) {
 			case 0:
-				try {
-					DirectoryWatcher directoryWatcher = new DirectoryWatcher(Paths.get(infoFile),
-							true);
-					directoryWatcher.processEvents(availableLanguages);
-				} catch (IOException e) {
-					System.err.println("Could not run DirectoryWatcher");
-				}
-				while (true) {
-				}
+				runIndexerDaemon(availableLanguages);
+				break;
 			case 1:
 				if (args[0].equals("--purge")) {
-					runIndexerWithCommandPurge();
+					if (!sendToDaemon("purge", "", false)) {
+						runIndexerWithCommandPurge();
+					}
 				} else if (args[0].equals("--list")) {
 					runIndexerWithCommandList();
 				} else if (args[0].equals("--reindex")) {
-					runIndexerWithCommandReindex(availableLanguages);
+					if (!sendToDaemon("reindex", "", stats)) {
+						runIndexerWithCommandReindex(availableLanguages, stats);
+					}
+				} else if (args[0].equals("--stop")) {
+					if (!sendToDaemon("stop", "", false)) {
+						System.err.println("Indexer is not running");
+						System.exit(1);
+					}
 				} else {
 					throw new IncorrectIndexerArguments();
 				}
 				break;
 			case 2:
+				String path = absolutePath(args[1]);
 				if (args[0].equals("--add")) {
-					runIndexerWithCommandAdd(args[1], availableLanguages);
+					if (!sendToDaemon("add", path, stats)) {
+						runIndexerWithCommandAdd(path, args[1], availableLanguages, stats);
+					}
 				} else if (args[0].equals("--rm")) {
-					runIndexerWithCommandRm(args[1]);
+					if (!sendToDaemon("rm", path, false)) {
+						runIndexerWithCommandRm(path, args[1]);
+					}
 				} else {
 					throw new IncorrectIndexerArguments();
 				}
@@ -0,0 +1,333 @@
+package indexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Klasa przechowująca spis zaindeksowanych plików wraz z ich rozmiarem,
+ * czasem modyfikacji i skrótem zawartości. Na jej podstawie reindeksacja
+ * ekstraktuje ponownie tylko pliki, które się zmieniły.
+ * 
+ * Przy zatwierdzaniu zmian spis nie jest zapisywany w całości, tylko zmiany od
+ * poprzedniego zatwierdzenia dopisywane są do dziennika obok pliku spisu.
+ * Dziennik wczytywany jest po spisie, a spis zapisywany jest w całości i
+ * dziennik usuwany przy zamykaniu indeksera albo gdy dziennik stanie się
+ * dłuższy niż spis. Ponowne odtworzenie dziennika na spisie, który już go
+ * uwzględnia, nie zmienia spisu, więc przerwanie zapisu między tymi krokami
+ * jest bezpieczne.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class Manifest {
+	/**
+	 * Algorytm używany do liczenia skrótu zawartości pliku.
+	 */
+	private static final String digestAlgorithm = "SHA-256";
+
+	/**
+	 * Klasa opisująca pojedynczy zaindeksowany plik.
+	 */
+	static class Entry {
+		/**
+		 * Rozmiar pliku w bajtach.
+		 */
+		final long size;
+
+		/**
+		 * Czas ostatniej modyfikacji pliku w milisekundach.
+		 */
+		final long modified;
+
+		/**
+		 * Skrót zawartości pliku zapisany szesnastkowo.
+		 */
+		final String hash;
+
+		/**
+		 * Konstruktor klasy Entry.
+		 * 
+		 * @param size     rozmiar pliku
+		 * @param modified czas ostatniej modyfikacji pliku
+		 * @param hash     skrót zawartości pliku
+		 */
+		Entry(long size, long modified, String hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Ścieżka do pliku, w którym zapisywany jest spis.
+	 */
+	private final Path file;
+
+	/**
+	 * Ścieżka do dziennika zmian spisu.
+	 */
+	private final Path log;
+
+	/**
+	 * Informacja o tym, czy spis został wczytany z istniejącego pliku.
+	 */
+	private final boolean existed;
+
+	/**
+	 * Mapa ze ścieżek plików na ich opisy, uporządkowana według ścieżek, dzięki
+	 * czemu pliki z jednego katalogu zajmują w niej spójny przedział.
+	 */
+	private final NavigableMap<String, Entry> entries;
+
+	/**
+	 * Zmiany spisu od ostatniego zapisu, w postaci linii dziennika.
+	 */
+	private final Queue<String> changes = new ConcurrentLinkedQueue<String>();
+
+	/**
+	 * Liczba linii w dzienniku zmian.
+	 */
+	private long logged;
+
+	/**
+	 * Konstruktor klasy Manifest, wczytujący spis z podanego pliku i zmiany z
+	 * jego dziennika, o ile te istnieją.
+	 * 
+	 * @param file ścieżka do pliku ze spisem
+	 * @throws IOException
+	 */
+	public Manifest(Path file) throws IOException {
+		this.file = file;
+		this.log = file.resolveSibling(file.getFileName() + ".log");
+		this.entries = new ConcurrentSkipListMap<String, Entry>();
+		this.existed = Files.exists(file);
+		TabFile.read(file, 4, fields -> entries.put(fields[3],
+				new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2])));
+		TabFile.read(log, 5, fields -> {
+			replay(fields);
+			logged++;
+		});
+	}
+
+	/**
+	 * Metoda stosująca do spisu zmianę wczytaną z dziennika. Pierwsze pole to
+	 * rodzaj zmiany, a ostatnie to ścieżka.
+	 * 
+	 * @param fields pola linii dziennika
+	 */
+	private void replay(String[] fields) {
+		switch (fields[0]) {
+		case "put":
+			entries.put(fields[4], new Entry(Long.parseLong(fields[1]),
+					Long.parseLong(fields[2]), fields[3]));
+			break;
+		case "remove":
+			entries.remove(fields[4]);
+			break;
+		case "removeUnder":
+			removeRange(fields[4]);
+			break;
+		case "clear":
+			entries.clear();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Metoda informująca, czy spis istniał przed utworzeniem obiektu. Indeks
+	 * zbudowany bez spisu nie może być reindeksowany przyrostowo.
+	 * 
+	 * @return true, jeśli spis został wczytany z pliku
+	 */
+	public boolean existed() {
+		return existed;
+	}
+
+	/**
+	 * Akcesor dający w wyniku opis pliku o podanej ścieżce.
+	 * 
+	 * @param path ścieżka do pliku
+	 * @return opis pliku lub null, gdy plik nie był zaindeksowany
+	 */
+	Entry get(String path) {
+		return entries.get(path);
+	}
+
+	/**
+	 * Akcesor dający w wyniku ścieżki wszystkich plików ze spisu.
+	 * 
+	 * @return zbiór ścieżek
+	 */
+	Set<String> paths() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Metoda zapisująca opis zaindeksowanego pliku.
+	 * 
+	 * @param path     ścieżka do pliku
+	 * @param size     rozmiar pliku
+	 * @param modified czas ostatniej modyfikacji pliku
+	 * @param hash     skrót zawartości pliku
+	 */
+	void put(String path, long size, long modified, String hash) {
+		entries.put(path, new Entry(size, modified, hash));
+		changes.add("put\t" + size + "\t" + modified + "\t" + hash + "\t" + path);
+	}
+
+	/**
+	 * Metoda usuwająca ze spisu plik o podanej ścieżce.
+	 * 
+	 * @param path ścieżka do pliku
+	 */
+	void remove(String path) {
+		entries.remove(path);
+		changes.add("remove\t\t\t\t" + path);
+	}
+
+	/**
+	 * Metoda usuwająca ze spisu plik o podanej ścieżce oraz wszystkie pliki
+	 * znajdujące się w katalogu o tej ścieżce. Ścieżki plików z katalogu
+	 * zaczynają się od ścieżki katalogu zakończonej separatorem, więc leżą w
+	 * przedziale kończącym się przed napisem z następnym po separatorze znakiem.
+	 * 
+	 * @param path ścieżka do pliku lub katalogu
+	 */
+	void removeUnder(String path) {
+		removeRange(path);
+		changes.add("removeUnder\t\t\t\t" + path);
+	}
+
+	/**
+	 * Metoda usuwająca ze spisu plik o podanej ścieżce oraz pliki z katalogu o
+	 * tej ścieżce, bez odnotowywania zmiany w dzienniku.
+	 * 
+	 * @param path ścieżka do pliku lub katalogu
+	 */
+	private void removeRange(String path) {
+		entries.remove(path);
+		String prefix = path.endsWith(File.separator) ? path : path + File.separator;
+		// Rodzeństwo katalogu, np. foo-old lub foo0, ma po nazwie znak mniejszy
+		// od separatora ('-') albo nie mniejszy od następnego po nim ('0'), więc
+		// leży poza przedziałem [foo/, foo0).
+		String end = prefix.substring(0, prefix.length() - 1)
+				+ (char) (File.separatorChar + 1);
+		entries.subMap(prefix, end).clear();
+	}
+
+	/**
+	 * Metoda usuwająca wszystkie pliki ze spisu.
+	 */
+	void clear() {
+		entries.clear();
+		changes.add("clear\t\t\t\t");
+	}
+
+	/**
+	 * Metoda utrwalająca zmiany spisu od ostatniego zapisu przez dopisanie ich
+	 * do dziennika. Spis zapisywany jest w całości, jeśli jeszcze nie istnieje
+	 * lub dziennik stałby się dłuższy niż spis.
+	 * 
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		List<String> lines = pollChanges();
+		if (!Files.exists(file) || logged + lines.size() > entries.size()) {
+			compact();
+		} else if (!lines.isEmpty()) {
+			TabFile.append(log, lines);
+			logged += lines.size();
+		}
+	}
+
+	/**
+	 * Metoda zapisująca cały spis do pliku i usuwająca dziennik zmian. Spis
+	 * zapisywany jest najpierw do pliku tymczasowego, który następnie zastępuje
+	 * poprzednią wersję, a dziennik usuwany jest dopiero po zapisaniu spisu na
+	 * dysku. Zmiany wprowadzone w trakcie zapisu pozostają do następnego
+	 * zapisu.
+	 * 
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		pollChanges();
+		TabFile.write(file, entries,
+				entry -> entry.size + "\t" + entry.modified + "\t" + entry.hash);
+		Files.deleteIfExists(log);
+		logged = 0;
+	}
+
+	/**
+	 * Metoda pobierająca zmiany spisu od ostatniego zapisu.
+	 * 
+	 * @return linie dziennika
+	 */
+	private List<String> pollChanges() {
+		List<String> lines = new ArrayList<String>();
+		String line;
+		while ((line = changes.poll()) != null) {
+			lines.add(line);
+		}
+		return lines;
+	}
+
+	/**
+	 * Metoda tworząca obiekt liczący skrót zawartości pliku.
+	 * 
+	 * @return obiekt klasy MessageDigest
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(digestAlgorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Metoda zamieniająca skrót na napis szesnastkowy.
+	 * 
+	 * @param digest obiekt liczący skrót, po przetworzeniu całej zawartości
+	 * @return skrót zapisany szesnastkowo
+	 */
+	static String toHex(MessageDigest digest) {
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Metoda licząca skrót zawartości podanego pliku.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return skrót zapisany szesnastkowo
+	 * @throws IOException
+	 */
+	static String hash(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[8192];
+		try (InputStream stream = Files.newInputStream(file)) {
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest);
+	}
+}
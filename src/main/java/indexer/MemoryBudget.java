@@ -0,0 +1,180 @@
+package indexer;
+
+/**
+ * Klasa ograniczająca łączny rozmiar tekstu wyekstraktowanego z dokumentów,
+ * które są w trakcie indeksowania. Wątek rezerwuje szacowany rozmiar przed
+ * ekstrakcją i czeka, dopóki budżet jest wyczerpany; po ekstrakcji rezerwacja
+ * jest poprawiana do rzeczywistego rozmiaru tekstu bez czekania, a po dodaniu
+ * dokumentu do indeksu zwalniana. Dokument większy niż cały budżet jest
+ * indeksowany, gdy żaden inny nie zajmuje budżetu. Rezerwację obiektu klasy
+ * Reservation można też powiększać w trakcie ekstrakcji, o ile tekst mieści
+ * się w budżecie.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class MemoryBudget {
+	/**
+	 * Rozmiar budżetu w bajtach.
+	 */
+	private final long capacity;
+
+	/**
+	 * Zarezerwowana część budżetu w bajtach.
+	 */
+	private long used = 0;
+
+	/**
+	 * Liczniki, w których odnotowywane jest wykorzystanie budżetu.
+	 */
+	private final IndexerStats stats;
+
+	/**
+	 * Konstruktor klasy MemoryBudget.
+	 * 
+	 * @param capacity rozmiar budżetu w bajtach
+	 * @param stats    liczniki indeksowania
+	 */
+	MemoryBudget(long capacity, IndexerStats stats) {
+		this.capacity = capacity;
+		this.stats = stats;
+		stats.budget(capacity);
+	}
+
+	/**
+	 * Metoda rezerwująca część budżetu, czekająca na jej zwolnienie przez inne
+	 * wątki. Przerwanie wątku kończy czekanie.
+	 * 
+	 * @param bytes rozmiar w bajtach
+	 * @return zarezerwowany rozmiar
+	 */
+	synchronized long acquire(long bytes) {
+		long start = System.nanoTime();
+		boolean waited = false;
+		while (used > 0 && used + bytes > capacity) {
+			waited = true;
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		if (waited) {
+			stats.budgetWaited(System.nanoTime() - start);
+		}
+		used += bytes;
+		stats.budgetUsed(used);
+		return bytes;
+	}
+
+	/**
+	 * Metoda zmieniająca rozmiar rezerwacji bez czekania.
+	 * 
+	 * @param reserved dotychczas zarezerwowany rozmiar
+	 * @param bytes    nowy rozmiar w bajtach
+	 * @return zarezerwowany rozmiar
+	 */
+	synchronized long resize(long reserved, long bytes) {
+		used += bytes - reserved;
+		stats.budgetUsed(used);
+		if (bytes < reserved) {
+			notifyAll();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Metoda zwalniająca rezerwację.
+	 * 
+	 * @param reserved zarezerwowany rozmiar
+	 */
+	synchronized void release(long reserved) {
+		used -= reserved;
+		stats.budgetUsed(used);
+		notifyAll();
+	}
+
+	/**
+	 * Metoda rezerwująca część budżetu jako obiekt, którego rezerwację można
+	 * powiększać w trakcie ekstrakcji.
+	 * 
+	 * @param bytes rozmiar w bajtach
+	 * @return rezerwacja
+	 */
+	Reservation reserve(long bytes) {
+		return new Reservation(acquire(bytes));
+	}
+
+	/**
+	 * Klasa rezerwacji budżetu dla tekstu jednego dokumentu. Po zwolnieniu
+	 * rezerwacja nie może już rosnąć, więc porzucony wątek parsera nie zajmie
+	 * budżetu ponownie.
+	 */
+	class Reservation {
+		/**
+		 * Zarezerwowany rozmiar w bajtach.
+		 */
+		private long bytes;
+
+		/**
+		 * Informacja, czy rezerwacja została zwolniona.
+		 */
+		private boolean released;
+
+		/**
+		 * Konstruktor klasy Reservation.
+		 * 
+		 * @param bytes zarezerwowany rozmiar
+		 */
+		private Reservation(long bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Metoda powiększająca rezerwację bez czekania, o ile nowy rozmiar
+		 * mieści się w budżecie razem z pozostałymi rezerwacjami.
+		 * 
+		 * @param bytes nowy rozmiar w bajtach
+		 * @return true, jeśli rezerwacja ma co najmniej podany rozmiar
+		 */
+		boolean grow(long bytes) {
+			synchronized (MemoryBudget.this) {
+				if (released) {
+					return false;
+				} else if (bytes <= this.bytes) {
+					return true;
+				} else if (used - this.bytes + bytes > capacity) {
+					return false;
+				}
+				this.bytes = MemoryBudget.this.resize(this.bytes, bytes);
+				return true;
+			}
+		}
+
+		/**
+		 * Metoda zmieniająca rozmiar rezerwacji bez czekania.
+		 * 
+		 * @param bytes nowy rozmiar w bajtach
+		 */
+		void resize(long bytes) {
+			synchronized (MemoryBudget.this) {
+				if (!released) {
+					this.bytes = MemoryBudget.this.resize(this.bytes, bytes);
+				}
+			}
+		}
+
+		/**
+		 * Metoda zwalniająca rezerwację.
+		 */
+		void release() {
+			synchronized (MemoryBudget.this) {
+				if (!released) {
+					released = true;
+					MemoryBudget.this.release(bytes);
+				}
+			}
+		}
+	}
+}
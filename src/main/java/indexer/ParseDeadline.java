@@ -0,0 +1,170 @@
+package indexer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Klasa odpowiadająca za limit czasu parsowania przy ekstrakcji strumieniowej.
+ * Parser pisze do łącza przez obiekt tej klasy, który odlicza czas spędzony
+ * przez parser na czekaniu, aż indekser odczyta tekst z pełnego łącza. Do
+ * limitu wliczany jest tylko czas pracy parsera, więc powolne dodawanie
+ * dużego dokumentu do indeksu nie przerywa jego parsowania.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class ParseDeadline extends Writer {
+	/**
+	 * Wartość pola writeStart, gdy parser nie pisze do łącza.
+	 */
+	private static final long notWriting = Long.MIN_VALUE;
+
+	/**
+	 * Łącze, do którego pisze parser.
+	 */
+	private final Writer output;
+
+	/**
+	 * Limit czasu parsowania w nanosekundach.
+	 */
+	private final long timeout;
+
+	/**
+	 * Wątek nadzorujący, który sprawdza limit.
+	 */
+	private final ScheduledExecutorService watchdog;
+
+	/**
+	 * Operacja przerywająca parsowanie po przekroczeniu limitu.
+	 */
+	private final Runnable onTimeout;
+
+	/**
+	 * Czas rozpoczęcia nadzoru w nanosekundach.
+	 */
+	private volatile long start;
+
+	/**
+	 * Łączny czas zakończonych zapisów do łącza w nanosekundach.
+	 */
+	private final AtomicLong blocked = new AtomicLong();
+
+	/**
+	 * Czas rozpoczęcia trwającego zapisu do łącza w nanosekundach lub
+	 * notWriting.
+	 */
+	private final AtomicLong writeStart = new AtomicLong(notWriting);
+
+	/**
+	 * Najbliższe sprawdzenie limitu lub null przed rozpoczęciem nadzoru.
+	 */
+	private volatile ScheduledFuture<?> alarm;
+
+	/**
+	 * Informacja, czy nadzór został zakończony.
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Konstruktor klasy ParseDeadline. Nadzór rozpoczyna się dopiero po
+	 * wywołaniu metody start().
+	 * 
+	 * @param output    łącze, do którego pisze parser
+	 * @param timeout   limit czasu parsowania w milisekundach
+	 * @param watchdog  wątek nadzorujący
+	 * @param onTimeout operacja przerywająca parsowanie
+	 */
+	ParseDeadline(Writer output, long timeout, ScheduledExecutorService watchdog,
+			Runnable onTimeout) {
+		this.output = output;
+		this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.watchdog = watchdog;
+		this.onTimeout = onTimeout;
+	}
+
+	/**
+	 * Metoda rozpoczynająca nadzór i planująca pierwsze sprawdzenie limitu.
+	 */
+	void start() {
+		start = System.nanoTime();
+		alarm = watchdog.schedule(this::check, timeout, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Metoda dająca w wyniku czas pracy parsera wliczany do limitu. Początek
+	 * trwającego zapisu odczytywany jest przed sumą zakończonych zapisów, tak
+	 * aby zapis kończący się w międzyczasie nie został pominięty w obu.
+	 * 
+	 * @return czas w nanosekundach
+	 */
+	long charged() {
+		long now = System.nanoTime();
+		long writing = writeStart.get();
+		long charged = now - start - blocked.get();
+		return (writing == notWriting) ? charged : charged - (now - writing);
+	}
+
+	/**
+	 * Metoda sprawdzająca limit. Jeśli nie został przekroczony, kolejne
+	 * sprawdzenie planowane jest na chwilę, w której zostałby przekroczony,
+	 * gdyby parser nie czekał na łącze.
+	 */
+	private void check() {
+		if (cancelled) {
+			return;
+		}
+		long charged = charged();
+		if (charged >= timeout) {
+			onTimeout.run();
+		} else {
+			alarm = watchdog.schedule(this::check, timeout - charged, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Metoda kończąca nadzór nad parsowaniem.
+	 */
+	void cancel() {
+		cancelled = true;
+		ScheduledFuture<?> alarm = this.alarm;
+		if (alarm != null) {
+			alarm.cancel(false);
+		}
+	}
+
+	/**
+	 * Nadpisana metoda zapisująca tekst do łącza i odliczająca czas zapisu od
+	 * czasu parsowania.
+	 */
+	@Override
+	public void write(char[] buffer, int offset, int length) throws IOException {
+		long begin = System.nanoTime();
+		writeStart.set(begin);
+		try {
+			output.write(buffer, offset, length);
+		} finally {
+			blocked.addAndGet(System.nanoTime() - begin);
+			writeStart.set(notWriting);
+		}
+	}
+
+	/**
+	 * Nadpisana metoda przekazująca tekst z bufora łącza do indeksera.
+	 */
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+
+	/**
+	 * Nadpisana metoda zamykająca łącze.
+	 */
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+}
@@ -0,0 +1,27 @@
+package indexer;
+
+import java.io.IOException;
+
+/**
+ * Klasa odpowiadająca za wyjątek przekroczenia czasu parsowania dokumentu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class ParseTimeoutException extends IOException {
+
+	/**
+	 * Atrybut przechowujący numer wersji.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Konstruktor przyjmujący napis jako parametr.
+	 * 
+	 * @param s obiekt klasy String
+	 */
+	public ParseTimeoutException(String s) {
+		super(s);
+	}
+
+}
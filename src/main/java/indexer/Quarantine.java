@@ -0,0 +1,139 @@
+package indexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Klasa przechowująca spis plików, których parsowanie przekroczyło limit
+ * czasu, wraz z liczbą przekroczeń. Plik, który przekroczył limit co najmniej
+ * indexer.quarantineAfter razy, trafia do kwarantanny i jest pomijany bez
+ * otwierania, dopóki nie zmieni się jego rozmiar lub czas modyfikacji. Aby
+ * ponownie zaindeksować pliki z kwarantanny, wystarczy usunąć plik spisu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class Quarantine {
+	/**
+	 * Klasa opisująca pojedynczy plik.
+	 */
+	private static class Entry {
+		/**
+		 * Liczba przekroczeń limitu czasu.
+		 */
+		final int timeouts;
+
+		/**
+		 * Rozmiar pliku w bajtach.
+		 */
+		final long size;
+
+		/**
+		 * Czas ostatniej modyfikacji pliku w milisekundach.
+		 */
+		final long modified;
+
+		/**
+		 * Konstruktor klasy Entry.
+		 * 
+		 * @param timeouts liczba przekroczeń limitu czasu
+		 * @param size     rozmiar pliku
+		 * @param modified czas ostatniej modyfikacji pliku
+		 */
+		Entry(int timeouts, long size, long modified) {
+			this.timeouts = timeouts;
+			this.size = size;
+			this.modified = modified;
+		}
+
+		/**
+		 * Metoda sprawdzająca, czy plik nie zmienił się od ostatniego przekroczenia.
+		 * 
+		 * @param attrs atrybuty pliku
+		 * @return true, jeśli rozmiar i czas modyfikacji się zgadzają
+		 */
+		boolean matches(BasicFileAttributes attrs) {
+			return size == attrs.size() && modified == attrs.lastModifiedTime().toMillis();
+		}
+	}
+
+	/**
+	 * Ścieżka do pliku, w którym zapisywany jest spis.
+	 */
+	private final Path file;
+
+	/**
+	 * Liczba przekroczeń limitu czasu, po której plik trafia do kwarantanny.
+	 */
+	private final int threshold = Math.max(1, Integer.getInteger("indexer.quarantineAfter", 2));
+
+	/**
+	 * Mapa ze ścieżek plików na ich opisy.
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Konstruktor klasy Quarantine, wczytujący spis z podanego pliku, o ile ten
+	 * istnieje.
+	 * 
+	 * @param file ścieżka do pliku ze spisem
+	 * @throws IOException
+	 */
+	public Quarantine(Path file) throws IOException {
+		this.file = file;
+		TabFile.read(file, 4, fields -> entries.put(fields[3], new Entry(
+				Integer.parseInt(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]))));
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy plik jest w kwarantannie. Atrybuty pliku
+	 * odczytywane są tylko dla plików obecnych w spisie.
+	 * 
+	 * @param path ścieżka do pliku
+	 * @return true, jeśli plik należy pominąć
+	 */
+	boolean contains(Path path) {
+		Entry entry = entries.get(path.toString());
+		if (entry == null || entry.timeouts < threshold) {
+			return false;
+		}
+		try {
+			return entry.matches(Files.readAttributes(path, BasicFileAttributes.class));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Metoda odnotowująca przekroczenie limitu czasu parsowania pliku i
+	 * zapisująca spis. Zmieniony plik zaczyna liczenie od nowa.
+	 * 
+	 * @param path ścieżka do pliku
+	 * @return true, jeśli plik trafił do kwarantanny
+	 * @throws IOException
+	 */
+	synchronized boolean timedOut(Path path) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		Entry entry = entries.get(path.toString());
+		int timeouts = (entry != null && entry.matches(attrs)) ? entry.timeouts + 1 : 1;
+		entries.put(path.toString(),
+				new Entry(timeouts, attrs.size(), attrs.lastModifiedTime().toMillis()));
+		save();
+		return timeouts >= threshold;
+	}
+
+	/**
+	 * Metoda zapisująca spis do pliku. Spis zapisywany jest najpierw do pliku
+	 * tymczasowego, który następnie zastępuje poprzednią wersję.
+	 * 
+	 * @throws IOException
+	 */
+	private void save() throws IOException {
+		TabFile.write(file, entries,
+				entry -> entry.timeouts + "\t" + entry.size + "\t" + entry.modified);
+	}
+}
@@ -0,0 +1,141 @@
+package indexer;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.Reader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Klasa odpowiadająca za strumień tekstu ekstraktowanego w osobnym wątku.
+ * Najpierw zwraca próbkę tekstu, przeczytaną wcześniej na potrzeby wykrycia
+ * języka, a następnie resztę tekstu odczytywaną z łącza, do którego pisze
+ * parser. Pamięć zajmowana przez dokument ogranicza się do próbki i bufora
+ * łącza.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class StreamingText extends Reader {
+	/**
+	 * Próbka z początku tekstu.
+	 */
+	private final char[] sample;
+
+	/**
+	 * Długość próbki.
+	 */
+	private final int sampleLength;
+
+	/**
+	 * Pozycja w próbce, od której należy kontynuować czytanie.
+	 */
+	private int samplePosition = 0;
+
+	/**
+	 * Łącze, do którego pisze parser.
+	 */
+	private final PipedReader pipe;
+
+	/**
+	 * Zadanie parsowania piszące do łącza.
+	 */
+	private final Future<?> parsing;
+
+	/**
+	 * Nadzór nad limitem czasu parsowania lub null, gdy limit jest wyłączony.
+	 */
+	private final ParseDeadline deadline;
+
+	/**
+	 * Informacja, czy parsowanie zostało przerwane po przekroczeniu limitu
+	 * czasu.
+	 */
+	private final AtomicBoolean timedOut;
+
+	/**
+	 * Konstruktor klasy StreamingText.
+	 * 
+	 * @param sample       próbka z początku tekstu
+	 * @param sampleLength długość próbki
+	 * @param pipe         łącze, do którego pisze parser
+	 * @param parsing      zadanie parsowania piszące do łącza
+	 * @param deadline     nadzór nad limitem czasu parsowania lub null
+	 * @param timedOut     informacja o przekroczeniu limitu czasu
+	 */
+	StreamingText(char[] sample, int sampleLength, PipedReader pipe, Future<?> parsing,
+			ParseDeadline deadline, AtomicBoolean timedOut) {
+		this.sample = sample;
+		this.sampleLength = sampleLength;
+		this.pipe = pipe;
+		this.parsing = parsing;
+		this.deadline = deadline;
+		this.timedOut = timedOut;
+	}
+
+	/**
+	 * Akcesor dający w wyniku próbkę z początku tekstu.
+	 * 
+	 * @return próbka tekstu
+	 */
+	String sample() {
+		return new String(sample, 0, sampleLength);
+	}
+
+	/**
+	 * Nadpisana metoda czytająca fragment tekstu. Po dojściu do końca łącza
+	 * zgłasza błąd parsowania, jeśli taki wystąpił, tak aby dokument nie został
+	 * dodany do indeksu. Przekroczenie limitu czasu zgłaszane jest także przy
+	 * czytaniu próbki.
+	 */
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (timedOut.get()) {
+			throw new ParseTimeoutException("Parsing timed out");
+		}
+		if (samplePosition < sampleLength) {
+			int count = Math.min(length, sampleLength - samplePosition);
+			System.arraycopy(sample, samplePosition, buffer, offset, count);
+			samplePosition += count;
+			return count;
+		}
+
+		int count = pipe.read(buffer, offset, length);
+		if (count == -1) {
+			checkParsing();
+		}
+		return count;
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy parsowanie zakończyło się powodzeniem.
+	 * 
+	 * @throws IOException
+	 */
+	private void checkParsing() throws IOException {
+		try {
+			parsing.get();
+		} catch (CancellationException e) {
+			throw new ParseTimeoutException("Parsing timed out");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Parsing failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Nadpisana metoda zamykająca strumień. Parser piszący do zamkniętego łącza
+	 * przerywa pracę.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (deadline != null) {
+			deadline.cancel();
+		}
+		pipe.close();
+	}
+}
@@ -0,0 +1,121 @@
+package indexer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Klasa odczytująca i zapisująca spisy plików w postaci tekstowej: po jednej
+ * linii na plik, z polami rozdzielonymi tabulatorami i ścieżką pliku w
+ * ostatnim polu, dzięki czemu ścieżka może zawierać dowolne znaki poza
+ * znakiem nowej linii.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class TabFile {
+	/**
+	 * Metoda wczytująca spis z pliku, o ile ten istnieje. Linie o niewłaściwej
+	 * liczbie pól są pomijane.
+	 * 
+	 * @param file   ścieżka do pliku ze spisem
+	 * @param fields liczba pól w linii, łącznie ze ścieżką
+	 * @param row    operacja wykonywana dla pól kolejnych linii
+	 * @throws IOException
+	 */
+	static void read(Path file, int fields, Consumer<String[]> row) throws IOException {
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split("\t", fields);
+				if (values.length == fields) {
+					row.accept(values);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Metoda zapisująca spis do pliku. Spis zapisywany jest najpierw do pliku
+	 * tymczasowego, który następnie zastępuje poprzednią wersję, więc przerwany
+	 * zapis nie psuje spisu. Metoda kończy się dopiero po zapisaniu na dysku
+	 * zarówno pliku, jak i zmiany jego nazwy, dzięki czemu po jej powrocie można
+	 * bezpiecznie usunąć dziennik zmian spisu.
+	 * 
+	 * @param <V>     typ opisu pliku
+	 * @param file    ścieżka do pliku ze spisem
+	 * @param entries mapa ze ścieżek plików na ich opisy
+	 * @param fields  funkcja dająca w wyniku pola opisu rozdzielone tabulatorami
+	 * @throws IOException
+	 */
+	static <V> void write(Path file, Map<String, V> entries, Function<V, String> fields)
+			throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, V> entry : entries.entrySet()) {
+				writer.write(fields.apply(entry.getValue()));
+				writer.write('\t');
+				writer.write(entry.getKey());
+				writer.newLine();
+			}
+		}
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory(file.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Metoda czekająca na zapisanie na dysku zmian w podanym katalogu, takich
+	 * jak zmiana nazwy pliku. W systemach, które nie pozwalają otworzyć katalogu
+	 * do synchronizacji, metoda nic nie robi.
+	 * 
+	 * @param directory ścieżka do katalogu
+	 */
+	private static void syncDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// Katalogu nie można zsynchronizować, np. w systemie Windows.
+		}
+	}
+
+	/**
+	 * Metoda dopisująca linie na końcu pliku i czekająca na zapisanie ich na
+	 * dysku. Brakujący plik jest tworzony.
+	 * 
+	 * @param file  ścieżka do pliku
+	 * @param lines linie z polami rozdzielonymi tabulatorami
+	 * @throws IOException
+	 */
+	static void append(Path file, List<String> lines) throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (String line : lines) {
+			text.append(line).append('\n');
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+	}
+}
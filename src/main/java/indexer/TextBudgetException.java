@@ -0,0 +1,28 @@
+package indexer;
+
+import java.io.IOException;
+
+/**
+ * Klasa odpowiadająca za wyjątek przekroczenia budżetu pamięci przez tekst
+ * dokumentu ekstraktowany w całości do pamięci.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class TextBudgetException extends IOException {
+
+	/**
+	 * Atrybut przechowujący numer wersji.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Konstruktor przyjmujący napis jako parametr.
+	 * 
+	 * @param s obiekt klasy String
+	 */
+	public TextBudgetException(String s) {
+		super(s);
+	}
+
+}
@@ -0,0 +1,356 @@
+package searcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.search.Query;
+
+/**
+ * Klasa wykonująca wsadowo zapytania wczytane z pliku lub standardowego
+ * wejścia. Każda linia wejścia to jedno zapytanie, które może być poprzedzone
+ * ustawieniami w postaci %lang=pl, %mode=phrase, %limit=10 lub %details=on.
+ * Bez ustawienia %limit zwracanych jest searcher.batchDefaultLimit wyników
+ * (domyślnie 10). Ujemny limit jest błędem, a limit równy 0 lub większy od
+ * searcher.batchMaxLimit (domyślnie 1000) jest nim zastępowany, o czym
+ * informują pola limit i clamped wyniku.
+ * Zapytania wykonywane są przez pulę wątków, a wyniki wypisywane są w
+ * formacie JSON Lines, po jednej linii na zapytanie, w kolejności zakończenia
+ * zapytań.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class BatchSearcher {
+	/**
+	 * Liczba zapytań oczekujących na wykonanie (na jeden wątek).
+	 */
+	private static final int queuedPerThread = 64;
+
+	/**
+	 * Rozmiar bufora wyjścia w znakach.
+	 */
+	private static final int outputBufferSize = 64 * 1024;
+
+	/**
+	 * Wyszukiwarka wykonująca zapytania.
+	 */
+	private final Searcher searcher;
+
+	/**
+	 * Liczba wątków wykonujących zapytania.
+	 */
+	private final int threads;
+
+	/**
+	 * Obiekt klasy Analyzer współdzielony przez wątki.
+	 */
+	private final Analyzer analyzer = new StandardAnalyzer();
+
+	/**
+	 * Buforowane wyjście wyników.
+	 */
+	private final Writer output = new BufferedWriter(
+			new OutputStreamWriter(System.out, StandardCharsets.UTF_8), outputBufferSize);
+
+	/**
+	 * Domyślna liczba zwracanych wyników.
+	 */
+	private final int defaultLimit = Integer.getInteger("searcher.batchDefaultLimit", 10);
+
+	/**
+	 * Maksymalna liczba zwracanych wyników.
+	 */
+	private final int maxLimit = Integer.getInteger("searcher.batchMaxLimit", 1000);
+
+	/**
+	 * Pierwszy błąd zapisu wyników lub null.
+	 */
+	private IOException outputError;
+
+	/**
+	 * Liczba zapytań zakończonych błędem.
+	 */
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Konstruktor klasy BatchSearcher.
+	 * 
+	 * @param searcher wyszukiwarka wykonująca zapytania
+	 */
+	public BatchSearcher(Searcher searcher) {
+		this(searcher, Integer.getInteger("searcher.batchThreads",
+				Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Konstruktor klasy BatchSearcher z podaną liczbą wątków.
+	 * 
+	 * @param searcher wyszukiwarka wykonująca zapytania
+	 * @param threads  liczba wątków wykonujących zapytania
+	 */
+	public BatchSearcher(Searcher searcher, int threads) {
+		this.searcher = searcher;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Metoda wykonująca wszystkie zapytania z podanego wejścia i wypisująca
+	 * podsumowanie na standardowe wyjście błędów. Gdy wszystkie wątki są zajęte,
+	 * a kolejka pełna, zapytanie wykonuje wątek czytający wejście, więc wejście
+	 * nie jest wczytywane szybciej, niż zapytania są wykonywane.
+	 * 
+	 * @param input wejście z zapytaniami
+	 * @throws IOException
+	 */
+	public void run(BufferedReader input) throws IOException {
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads * queuedPerThread),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		long start = System.nanoTime();
+		int queries = 0;
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = input.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				int id = lineNumber;
+				String text = line;
+				workers.execute(() -> write(execute(id, text)));
+				queries++;
+			}
+		} finally {
+			workers.shutdown();
+			try {
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				workers.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while running queries");
+			}
+			synchronized (this) {
+				output.flush();
+			}
+		}
+
+		if (outputError != null) {
+			throw outputError;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.println(String.format(Locale.ROOT,
+				"Queries: %d, failed: %d, time: %.3f s, %.1f queries/s", queries, failed.get(),
+				seconds, queries / Math.max(seconds, 1e-9)));
+	}
+
+	/**
+	 * Metoda wykonująca zapytanie z pojedynczej linii wejścia.
+	 * 
+	 * @param id   numer linii wejścia
+	 * @param line linia wejścia
+	 * @return linia wyniku w formacie JSON
+	 */
+	private String execute(int id, String line) {
+		long start = System.nanoTime();
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"id\":").append(id);
+
+		String language = "en";
+		String mode = "term";
+		int requested = defaultLimit;
+		boolean details = false;
+		String text = line;
+		try {
+			while (text.startsWith("%")) {
+				int end = text.indexOf(' ');
+				String option = (end < 0) ? text : text.substring(0, end);
+				text = (end < 0) ? "" : text.substring(end + 1);
+				int separator = option.indexOf('=');
+				if (separator < 0) {
+					throw new WrongArgument(option);
+				}
+				String name = option.substring(0, separator);
+				String value = option.substring(separator + 1);
+				if (name.equals("%lang") && value.matches("pl|en|all")) {
+					language = value;
+				} else if (name.equals("%mode") && value.matches("term|phrase|fuzzy")) {
+					mode = value;
+				} else if (name.equals("%limit")) {
+					requested = Integer.parseInt(value);
+				} else if (name.equals("%details") && value.matches("on|off")) {
+					details = value.equals("on");
+				} else {
+					throw new WrongArgument(option);
+				}
+			}
+			if (requested < 0) {
+				throw new NumberFormatException("Negative limit " + requested);
+			}
+			int limit = (requested == 0 || requested > maxLimit) ? maxLimit : requested;
+			search(json, start, searcher, analyzer, language, mode, limit, limit != requested,
+					details, text);
+		} catch (WrongArgument e) {
+			error(json, start, "Wrong option " + e.getMessage());
+		} catch (NumberFormatException e) {
+			error(json, start, "Wrong number in option");
+		} catch (IncorrectSearchingArgument e) {
+			error(json, start, "Incorrect searching argument");
+		} catch (IOException | RuntimeException e) {
+			error(json, start, "Search failed: " + e);
+		}
+		return json.toString();
+	}
+
+	/**
+	 * Metoda wykonująca zapytanie i dopisująca jego wyniki do obiektu JSON.
+	 * Dopisywane są pola query, lang, mode, count, tookMs i hits, a obiekt jest
+	 * zamykany. Jeśli żądany limit został zastąpiony, dopisywane są też pola
+	 * limit i clamped.
+	 * 
+	 * @param json     otwarty obiekt JSON
+	 * @param start    czas rozpoczęcia zapytania w nanosekundach
+	 * @param searcher wyszukiwarka wykonująca zapytanie
+	 * @param analyzer obiekt klasy Analyzer
+	 * @param language język: pl, en lub all
+	 * @param mode     sposób wyszukiwania: term, phrase lub fuzzy
+	 * @param limit    maksymalna liczba wyników, dodatnia; żądany limit równy 0
+	 *                 lub większy od maksymalnego wywołujący zastępuje
+	 *                 maksymalnym
+	 * @param clamped  informacja, czy limit różni się od żądanego
+	 * @param details  informacja, czy wyznaczać konteksty wyników
+	 * @param text     wyszukiwany tekst
+	 * @throws IncorrectSearchingArgument wyjątek niepoprawnego szukanego
+	 *                                    wyrażenia
+	 * @throws IOException
+	 */
+	static void search(StringBuilder json, long start, Searcher searcher, Analyzer analyzer,
+			String language, String mode, int limit, boolean clamped, boolean details,
+			String text) throws IncorrectSearchingArgument, IOException {
+		json.append((json.length() > 1) ? ",\"query\":" : "\"query\":");
+		quote(json, text);
+		json.append(",\"lang\":\"").append(language);
+		json.append("\",\"mode\":\"").append(mode).append('"');
+		if (clamped) {
+			json.append(",\"limit\":").append(limit).append(",\"clamped\":true");
+		}
+		if (text.isEmpty()) {
+			throw new IncorrectSearchingArgument();
+		}
+
+		Query query = Searcher.buildQuery(mode, text);
+		List<Searcher.Hit> hits = new ArrayList<Searcher.Hit>();
+		int count = searcher.search(language, query, analyzer, limit, Searcher.defaultPageSize,
+				details, hits);
+		json.append(",\"count\":").append(count);
+		tookMs(json, start);
+		json.append(",\"hits\":[");
+		for (int i = 0; i < hits.size(); i++) {
+			Searcher.Hit hit = hits.get(i);
+			json.append((i == 0) ? "{\"path\":" : ",{\"path\":");
+			quote(json, hit.path);
+			json.append(",\"lang\":\"").append(hit.language);
+			json.append("\",\"score\":").append(hit.score);
+			if (hit.context != null) {
+				json.append(",\"context\":");
+				quote(json, hit.context);
+			}
+			json.append('}');
+		}
+		json.append("]}");
+	}
+
+	/**
+	 * Metoda kończąca linię wyniku komunikatem o błędzie.
+	 * 
+	 * @param json    linia wyniku
+	 * @param start   czas rozpoczęcia zapytania w nanosekundach
+	 * @param message komunikat o błędzie
+	 */
+	private void error(StringBuilder json, long start, String message) {
+		failed.incrementAndGet();
+		tookMs(json, start);
+		json.append(",\"error\":");
+		quote(json, message);
+		json.append('}');
+	}
+
+	/**
+	 * Metoda dopisująca do linii wyniku czas wykonania zapytania.
+	 * 
+	 * @param json  linia wyniku
+	 * @param start czas rozpoczęcia zapytania w nanosekundach
+	 */
+	static void tookMs(StringBuilder json, long start) {
+		json.append(",\"tookMs\":").append(
+				String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e6));
+	}
+
+	/**
+	 * Metoda dopisująca napis w postaci napisu JSON.
+	 * 
+	 * @param json linia wyniku
+	 * @param text napis
+	 */
+	static void quote(StringBuilder json, String text) {
+		json.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+		json.append('"');
+	}
+
+	/**
+	 * Metoda zapisująca linię wyniku do buforowanego wyjścia.
+	 * 
+	 * @param line linia wyniku
+	 */
+	private synchronized void write(String line) {
+		if (outputError != null) {
+			return;
+		}
+		try {
+			output.write(line);
+			output.write('\n');
+		} catch (IOException e) {
+			outputError = e;
+		}
+	}
+}
@@ -1,6 +1,13 @@
 package searcher;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import common.Settings;
 
 /**
  * Klasa zawierająca metodę main.
@@ -10,14 +17,63 @@ import java.io.IOException;
  */
 public class Main {
 	/**
-	 * Metoda main.
+	 * Metoda uruchamiająca serwer HTTP, zatrzymywany wraz z programem.
+	 * 
+	 * @param searcher wyszukiwarka wykonująca zapytania
+	 * @throws IOException
+	 */
+	private static void runServer(Searcher searcher) throws IOException {
+		SearchServer server = new SearchServer(searcher);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(1);
+			try {
+				searcher.closeReaders();
+			} catch (IOException e) {
+				System.err.println("Could not close index readers");
+			}
+		}));
+		server.start();
+	}
+
+	/**
+	 * Metoda main. Z argumentem --batch zapytania wczytywane są z podanego pliku
+	 * lub, bez pliku, ze standardowego wejścia i wykonywane wsadowo. Z
+	 * argumentem --server wyszukiwarka udostępniana jest przez HTTP do czasu
+	 * zatrzymania programu. Ustawienia wczytywane są z pliku config.properties,
+	 * wspólnego z indekserem.
 	 * 
 	 * @param args tablica argumentów podanych przy uruchamianiu programu
 	 */
 	public static void main(String[] args) {
+		try {
+			Settings.load();
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Could not read configuration: " + e.getMessage());
+			System.exit(1);
+		}
+		boolean batch = args.length > 0 && args[0].equals("--batch") && args.length <= 2;
+		boolean server = args.length == 1 && args[0].equals("--server");
+		if (args.length > 0 && !batch && !server) {
+			System.err.println("Incorrect searcher arguments.");
+			System.exit(1);
+		}
+
 		try {
 			Searcher searcher = new Searcher();
-			searcher.searchAndPrintResults();
+			if (server) {
+				runServer(searcher);
+				return;
+			} else if (args.length == 0) {
+				searcher.searchAndPrintResults();
+			} else if (args.length == 1) {
+				new BatchSearcher(searcher).run(new BufferedReader(
+						new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+			} else {
+				try (BufferedReader input = Files.newBufferedReader(Paths.get(args[1]),
+						StandardCharsets.UTF_8)) {
+					new BatchSearcher(searcher).run(input);
+				}
+			}
 			searcher.closeReaders();
 		} catch (IOException e) {
 			e.printStackTrace();
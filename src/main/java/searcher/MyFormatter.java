@@ -2,14 +2,18 @@ package searcher;
 
 import org.apache.lucene.search.highlight.Formatter;
 import org.apache.lucene.search.highlight.TokenGroup;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
 
 /**
  * Klasa odpowiadająca za formatowanie wypisywanych wyników wyszukiwania.
+ * Obsługuje zarówno podświetlanie pojedynczych słów, jak i formatowanie
+ * fragmentów tekstu wyznaczonych na podstawie zaindeksowanych pozycji słów.
  * 
  * @author Karol Soczewica
  * @version 2019.06.21
  */
-public class MyFormatter implements Formatter {
+public class MyFormatter extends PassageFormatter implements Formatter {
 	/**
 	 * Atrybut przechowuje prefiks potrzebny do wypisywania słowa w kolorze
 	 * czerwonym.
@@ -69,4 +73,39 @@ public class MyFormatter implements Formatter {
 		}
 	}
 
+	/**
+	 * Nadpisana metoda odpowiadająca za formatowanie fragmentów tekstu. Każdy
+	 * fragment wypisywany jest w osobnej linii, a znalezione słowa są
+	 * podświetlane.
+	 * 
+	 * @param passages fragmenty tekstu zawierające znalezione słowa
+	 * @param content  tekst dokumentu
+	 */
+	@Override
+	public String format(Passage[] passages, String content) {
+		StringBuilder builder = new StringBuilder();
+		for (Passage passage : passages) {
+			if (builder.length() > 0) {
+				builder.append(System.lineSeparator());
+			}
+			builder.append("... ");
+
+			int position = passage.getStartOffset();
+			for (int i = 0; i < passage.getNumMatches(); i++) {
+				int start = passage.getMatchStarts()[i];
+				int end = passage.getMatchEnds()[i];
+				if (start < position) {
+					continue;
+				}
+				builder.append(content, position, start);
+				builder.append(preTag);
+				builder.append(content, start, end);
+				builder.append(postTag);
+				position = end;
+			}
+			builder.append(content, position, Math.max(position, passage.getEndOffset()));
+			builder.append(" ...");
+		}
+		return builder.toString();
+	}
 }
@@ -0,0 +1,187 @@
+package searcher;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * Klasa odpowiadająca za pamięć podręczną wyników wyszukiwania. Wyniki
+ * usuwane są w kolejności najdawniejszego użycia, gdy przekroczona zostanie
+ * liczba wyników lub zajmowana pamięć. Każdy wynik pamięta wersję indeksu, z
+ * której pochodzi, i przestaje obowiązywać po zmianie indeksu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class ResultCache {
+	/**
+	 * Klasa opisująca zapamiętany wynik wyszukiwania.
+	 */
+	static class Entry {
+		/**
+		 * Wypisany tekst wyniku.
+		 */
+		final String output;
+
+		/**
+		 * Ostatni wypisany wynik z każdego indeksu lub null, gdy nie ma kolejnych
+		 * wyników.
+		 */
+		final ScoreDoc[] lastHits;
+
+		/**
+		 * Wersje przeszukanych indeksów, z których pochodzi wynik.
+		 */
+		final long[] versions;
+
+		/**
+		 * Konstruktor klasy Entry.
+		 * 
+		 * @param output   wypisany tekst wyniku
+		 * @param lastHits ostatni wypisany wynik z każdego indeksu
+		 * @param versions wersje przeszukanych indeksów
+		 */
+		Entry(String output, ScoreDoc[] lastHits, long[] versions) {
+			this.output = output;
+			this.lastHits = lastHits;
+			this.versions = versions;
+		}
+
+		/**
+		 * Metoda szacująca pamięć zajmowaną przez wynik w bajtach.
+		 * 
+		 * @return szacowany rozmiar wyniku
+		 */
+		long bytes() {
+			return 2L * output.length();
+		}
+	}
+
+	/**
+	 * Maksymalna liczba zapamiętanych wyników.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Maksymalna pamięć zajmowana przez zapamiętane wyniki w bajtach.
+	 */
+	private final long maxBytes;
+
+	/**
+	 * Mapa z kluczy zapytań na wyniki, uporządkowana od najdawniej użytego.
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16,
+			0.75f, true);
+
+	/**
+	 * Pamięć zajmowana przez zapamiętane wyniki w bajtach.
+	 */
+	private long bytes = 0;
+
+	/**
+	 * Liczba trafień w pamięci podręcznej.
+	 */
+	private long hits = 0;
+
+	/**
+	 * Liczba chybień w pamięci podręcznej.
+	 */
+	private long misses = 0;
+
+	/**
+	 * Konstruktor klasy ResultCache.
+	 * 
+	 * @param maxEntries maksymalna liczba zapamiętanych wyników
+	 * @param maxBytes   maksymalna pamięć zajmowana przez wyniki w bajtach
+	 */
+	public ResultCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Akcesor dający w wyniku maksymalną liczbę znaków pojedynczego wyniku,
+	 * który może zostać zapamiętany.
+	 * 
+	 * @return maksymalna długość wyniku w znakach
+	 */
+	public long maxEntryChars() {
+		return maxBytes / 2;
+	}
+
+	/**
+	 * Metoda dająca w wyniku zapamiętany wynik dla podanego klucza, o ile
+	 * pochodzi z podanych wersji indeksów.
+	 * 
+	 * @param key      klucz zapytania
+	 * @param versions bieżące wersje przeszukiwanych indeksów
+	 * @return zapamiętany wynik lub null
+	 */
+	synchronized Entry get(String key, long[] versions) {
+		Entry entry = entries.get(key);
+		if (entry != null && !Arrays.equals(entry.versions, versions)) {
+			remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Metoda zapamiętująca wynik dla podanego klucza i usuwająca najdawniej
+	 * użyte wyniki, jeśli przekroczone zostały limity.
+	 * 
+	 * @param key   klucz zapytania
+	 * @param entry wynik wyszukiwania
+	 */
+	synchronized void put(String key, Entry entry) {
+		if (entry.bytes() > maxBytes || maxEntries <= 0) {
+			return;
+		}
+		remove(key);
+		entries.put(key, entry);
+		bytes += entry.bytes();
+
+		Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxEntries || bytes > maxBytes) {
+			bytes -= eldest.next().getValue().bytes();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Metoda usuwająca wynik o podanym kluczu.
+	 * 
+	 * @param key klucz zapytania
+	 */
+	private void remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			bytes -= removed.bytes();
+		}
+	}
+
+	/**
+	 * Metoda usuwająca wszystkie zapamiętane wyniki.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Nadpisana metoda opisująca stan pamięci podręcznej.
+	 */
+	@Override
+	public synchronized String toString() {
+		return "Cache hits: " + hits + ", misses: " + misses + ", entries: " + entries.size()
+				+ ", size: " + bytes + " bytes";
+	}
+}
@@ -0,0 +1,380 @@
+package searcher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Klasa udostępniająca wyszukiwarkę przez HTTP za pomocą serwera wbudowanego
+ * w JDK. Zapytanie GET /search?q=...&amp;mode=term&amp;lang=en&amp;limit=10&amp;details=on
+ * zwraca wyniki w tym samym formacie JSON co tryb wsadowy. Liczba równocześnie
+ * wykonywanych zapytań jest ograniczona, a zapytanie, które nie doczeka się
+ * wolnego miejsca w zadanym czasie, liczonym od przyjęcia połączenia, jest
+ * odrzucane z kodem 503. Kolejka połączeń czekających na wątek również jest
+ * ograniczona; połączenie, które się w niej nie mieści, dostaje od razu kod
+ * 503, dzięki czemu przeciążenie nie wydłuża czasu odpowiedzi pozostałych
+ * zapytań.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class SearchServer {
+	/**
+	 * Wyszukiwarka wykonująca zapytania.
+	 */
+	private final Searcher searcher;
+
+	/**
+	 * Obiekt klasy Analyzer współdzielony przez wątki.
+	 */
+	private final Analyzer analyzer = new StandardAnalyzer();
+
+	/**
+	 * Serwer HTTP.
+	 */
+	private final HttpServer server;
+
+	/**
+	 * Pula wątków obsługujących połączenia.
+	 */
+	private final ExecutorService handlers;
+
+	/**
+	 * Czas przyjęcia obsługiwanego przez wątek połączenia i informacja, czy
+	 * zostało ono odrzucone z powodu przepełnienia kolejki.
+	 */
+	private final ThreadLocal<Admission> admission = new ThreadLocal<Admission>();
+
+	/**
+	 * Maksymalna liczba równocześnie wykonywanych zapytań.
+	 */
+	private final int concurrency;
+
+	/**
+	 * Pozwolenia na równoczesne wykonywanie zapytań.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Maksymalny czas oczekiwania zapytania na wykonanie w milisekundach.
+	 */
+	private final long maxWaitMs = Long.getLong("server.maxWaitMs", 100);
+
+	/**
+	 * Domyślna liczba zwracanych wyników.
+	 */
+	private final int defaultLimit = Integer.getInteger("server.defaultLimit", 10);
+
+	/**
+	 * Maksymalna liczba zwracanych wyników.
+	 */
+	private final int maxLimit = Integer.getInteger("server.maxLimit", 1000);
+
+	/**
+	 * Liczba wykonanych zapytań.
+	 */
+	private final AtomicLong served = new AtomicLong();
+
+	/**
+	 * Liczba zapytań odrzuconych z powodu przeciążenia.
+	 */
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Konstruktor klasy SearchServer. Port, liczba równocześnie wykonywanych
+	 * zapytań, liczba wątków obsługujących połączenia i długość kolejki
+	 * połączeń czekających na wątek podawane są we właściwościach server.port,
+	 * server.concurrency, server.threads i server.queueSize. Serwer
+	 * nie uwierzytelnia klientów, więc domyślnie nasłuchuje tylko na adresie
+	 * lokalnym; inny adres, np. 0.0.0.0, można podać we właściwości
+	 * server.host.
+	 * 
+	 * @param searcher wyszukiwarka wykonująca zapytania
+	 * @throws IOException
+	 */
+	public SearchServer(Searcher searcher) throws IOException {
+		this.searcher = searcher;
+		concurrency = Math.max(1, Integer.getInteger("server.concurrency",
+				Runtime.getRuntime().availableProcessors()));
+		int threads = Math.max(concurrency, Integer.getInteger("server.threads", 4 * concurrency));
+		permits = new Semaphore(concurrency);
+		int queueSize = Math.max(1, Integer.getInteger("server.queueSize", threads));
+		handlers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), runnable -> {
+					Thread thread = new Thread(runnable, "server");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		String host = System.getProperty("server.host");
+		InetAddress address = host == null ? InetAddress.getLoopbackAddress()
+				: InetAddress.getByName(host);
+		server = HttpServer.create(
+				new InetSocketAddress(address, Integer.getInteger("server.port", 8080)),
+				Integer.getInteger("server.backlog", 0));
+		server.setExecutor(this::dispatch);
+		server.createContext("/search", this::search);
+		server.createContext("/health", this::health);
+	}
+
+	/**
+	 * Metoda uruchamiająca serwer.
+	 */
+	public void start() {
+		server.start();
+		System.err.println("Listening on " + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort());
+	}
+
+	/**
+	 * Metoda zatrzymująca serwer, czekająca na zakończenie obsługiwanych zapytań
+	 * nie dłużej niż podany czas.
+	 * 
+	 * @param delay maksymalny czas oczekiwania w sekundach
+	 */
+	public void stop(int delay) {
+		server.stop(delay);
+		handlers.shutdown();
+	}
+
+	/**
+	 * Metoda przekazująca przyjęte połączenie do puli wątków. Gdy kolejka puli
+	 * jest pełna, połączenie obsługiwane jest od razu w wątku serwera jako
+	 * odrzucone, co sprowadza się do wysłania krótkiej odpowiedzi 503.
+	 * 
+	 * @param connection zadanie obsługi połączenia
+	 */
+	private void dispatch(Runnable connection) {
+		long dispatched = System.nanoTime();
+		try {
+			handlers.execute(() -> handle(connection, new Admission(dispatched, false)));
+		} catch (RejectedExecutionException e) {
+			handle(connection, new Admission(dispatched, true));
+		}
+	}
+
+	/**
+	 * Metoda obsługująca połączenie z podanym stanem przyjęcia.
+	 * 
+	 * @param connection zadanie obsługi połączenia
+	 * @param admitted   stan przyjęcia połączenia
+	 */
+	private void handle(Runnable connection, Admission admitted) {
+		admission.set(admitted);
+		try {
+			connection.run();
+		} finally {
+			admission.remove();
+		}
+	}
+
+	/**
+	 * Metoda obsługująca zapytanie /search. Czas oczekiwania na wykonanie i
+	 * czas zapytania liczone są od przyjęcia połączenia, a więc obejmują czas
+	 * spędzony w kolejce puli wątków.
+	 * 
+	 * @param exchange zapytanie HTTP
+	 * @throws IOException
+	 */
+	private void search(HttpExchange exchange) throws IOException {
+		Admission admitted = admission.get();
+		long start = (admitted == null) ? System.nanoTime() : admitted.dispatched;
+		StringBuilder json = new StringBuilder(256).append('{');
+		int status = 200;
+		boolean acquired = false;
+		long wait = TimeUnit.MILLISECONDS.toNanos(maxWaitMs) - (System.nanoTime() - start);
+		try {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				status = error(json, start, 405, "Method not allowed");
+			} else if ((admitted != null && admitted.overloaded)
+					|| !(acquired = permits.tryAcquire(wait, TimeUnit.NANOSECONDS))) {
+				rejected.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				status = error(json, start, 503, "Server overloaded");
+			} else {
+				Map<String, String> parameters;
+				try {
+					parameters = parameters(exchange.getRequestURI().getRawQuery());
+				} catch (IllegalArgumentException e) {
+					throw new WrongArgument("encoding");
+				}
+				search(json, start, parameters);
+				served.incrementAndGet();
+			}
+		} catch (WrongArgument e) {
+			status = error(json, start, 400, "Wrong parameter " + e.getMessage());
+		} catch (NumberFormatException e) {
+			status = error(json, start, 400, "Wrong number in parameter limit");
+		} catch (IncorrectSearchingArgument e) {
+			status = error(json, start, 400, "Incorrect searching argument");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			status = error(json, start, 503, "Server shutting down");
+		} catch (IOException | RuntimeException e) {
+			status = error(json, start, 500, "Search failed: " + e);
+		} finally {
+			if (acquired) {
+				permits.release();
+			}
+		}
+		respond(exchange, status, json);
+	}
+
+	/**
+	 * Metoda wykonująca zapytanie o podanych parametrach i dopisująca jego
+	 * wyniki do obiektu JSON.
+	 * 
+	 * @param json       obiekt JSON z otwartym nawiasem
+	 * @param start      czas rozpoczęcia zapytania w nanosekundach
+	 * @param parameters parametry zapytania
+	 * @throws WrongArgument              wyjątek niepoprawnego argumentu
+	 * @throws IncorrectSearchingArgument wyjątek niepoprawnego szukanego
+	 *                                    wyrażenia
+	 * @throws IOException
+	 */
+	private void search(StringBuilder json, long start, Map<String, String> parameters)
+			throws WrongArgument, IncorrectSearchingArgument, IOException {
+		String language = parameters.getOrDefault("lang", "en");
+		String mode = parameters.getOrDefault("mode", "term");
+		String details = parameters.getOrDefault("details", "off");
+		if (!language.matches("pl|en|all")) {
+			throw new WrongArgument("lang");
+		}
+		if (!mode.matches("term|phrase|fuzzy")) {
+			throw new WrongArgument("mode");
+		}
+		if (!details.matches("on|off")) {
+			throw new WrongArgument("details");
+		}
+		int requested = Integer.parseInt(parameters.getOrDefault("limit", "" + defaultLimit));
+		if (requested < 0) {
+			throw new NumberFormatException("Negative limit " + requested);
+		}
+		int limit = (requested == 0 || requested > maxLimit) ? maxLimit : requested;
+
+		BatchSearcher.search(json, start, searcher, analyzer, language, mode, limit,
+				limit != requested, details.equals("on"), parameters.getOrDefault("q", ""));
+	}
+
+	/**
+	 * Metoda obsługująca zapytanie /health, zwracająca liczby wykonanych i
+	 * odrzuconych zapytań.
+	 * 
+	 * @param exchange zapytanie HTTP
+	 * @throws IOException
+	 */
+	private void health(HttpExchange exchange) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"served\":").append(served.get());
+		json.append(",\"rejected\":").append(rejected.get());
+		json.append(",\"running\":").append(concurrency - permits.availablePermits()).append('}');
+		respond(exchange, 200, json);
+	}
+
+	/**
+	 * Metoda zastępująca treść obiektu JSON komunikatem o błędzie.
+	 * 
+	 * @param json    obiekt JSON z otwartym nawiasem
+	 * @param start   czas rozpoczęcia zapytania w nanosekundach
+	 * @param status  kod odpowiedzi
+	 * @param message komunikat o błędzie
+	 * @return kod odpowiedzi
+	 */
+	private static int error(StringBuilder json, long start, int status, String message) {
+		json.setLength(1);
+		json.append("\"error\":");
+		BatchSearcher.quote(json, message);
+		BatchSearcher.tookMs(json, start);
+		json.append('}');
+		return status;
+	}
+
+	/**
+	 * Metoda wysyłająca odpowiedź w formacie JSON.
+	 * 
+	 * @param exchange zapytanie HTTP
+	 * @param status   kod odpowiedzi
+	 * @param json     treść odpowiedzi
+	 * @throws IOException
+	 */
+	private static void respond(HttpExchange exchange, int status, CharSequence json)
+			throws IOException {
+		byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Metoda dekodująca parametry zapytania HTTP.
+	 * 
+	 * @param query zakodowana część zapytania po znaku ? lub null
+	 * @return parametry zapytania
+	 * @throws IllegalArgumentException gdy zapytanie zawiera niepoprawną
+	 *                                  sekwencję %
+	 * @throws UnsupportedEncodingException
+	 */
+	private static Map<String, String> parameters(String query)
+			throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String parameter : query.split("&")) {
+			int separator = parameter.indexOf('=');
+			if (separator > 0) {
+				parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+						URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Klasa opisująca przyjęcie połączenia przez serwer.
+	 */
+	private static class Admission {
+		/**
+		 * Czas przyjęcia połączenia w nanosekundach.
+		 */
+		final long dispatched;
+
+		/**
+		 * Informacja, czy połączenie zostało odrzucone z powodu przepełnienia
+		 * kolejki.
+		 */
+		final boolean overloaded;
+
+		/**
+		 * Konstruktor klasy Admission.
+		 * 
+		 * @param dispatched czas przyjęcia połączenia w nanosekundach
+		 * @param overloaded informacja o przepełnieniu kolejki
+		 */
+		Admission(long dispatched, boolean overloaded) {
+			this.dispatched = dispatched;
+			this.overloaded = overloaded;
+		}
+	}
+}
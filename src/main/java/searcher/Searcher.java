@@ -1,11 +1,28 @@
 package searcher;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import common.Settings;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
@@ -15,17 +32,14 @@ import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.highlight.Formatter;
-import org.apache.lucene.search.highlight.Fragmenter;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
-import org.apache.lucene.search.highlight.TokenSources;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 
 /**
  * Klasa odpowiadająca za działanie wyszukiwarki.
@@ -45,15 +59,51 @@ public class Searcher {
 	private static final String englishIndexPath = "index/indexEN";
 
 	/**
-	 * Atrybut przechowujący obiekt klasy IndexReader dla plików w języku polskim.
+	 * Docelowa długość wypisywanego kontekstu w znakach.
+	 */
+	private static final int fragmentSize = 50;
+
+	/**
+	 * Maksymalna liczba kontekstów wypisywanych dla jednego wyniku.
+	 */
+	private static final int maxFragments = 10;
+
+	/**
+	 * Liczba znaków z początku dokumentu, w których szukane są konteksty.
+	 */
+	private static final int maxHighlightedLength = 50 * 1024;
+
+	/**
+	 * Zbiór pól wczytywanych dla wypisywanych wyników.
+	 */
+	private static final Set<String> pathField = Collections.singleton("path");
+
+	/**
+	 * Przedrostek nazw katalogów części indeksu.
+	 */
+	private static final String shardPrefix = "shard-";
+
+	/**
+	 * Domyślna liczba wyników pobieranych z indeksu naraz.
+	 */
+	static final int defaultPageSize = 100;
+
+	/**
+	 * Atrybut przechowujący obiekty klasy SearcherManager dla kolejnych części
+	 * indeksu plików w języku polskim.
+	 */
+	private SearcherManager[] managersPL;
+
+	/**
+	 * Atrybut przechowujący obiekty klasy SearcherManager dla kolejnych części
+	 * indeksu plików w języku angielskim.
 	 */
-	private IndexReader readerPL;
+	private SearcherManager[] managersEN;
 
 	/**
-	 * Atrybut przechowujący obiekt klasy IndexReader dla plików w języku
-	 * angielskim.
+	 * Wątek odświeżający w tle obiekty klasy SearcherManager.
 	 */
-	private IndexReader readerEN;
+	private ScheduledExecutorService refresher;
 
 	/**
 	 * Atrybut przechowujący informację o obecnie wybranym języku wyszukiwania.
@@ -71,6 +121,12 @@ public class Searcher {
 	 */
 	private int limit = 0;
 
+	/**
+	 * Atrybut przechowujący liczbę wyników pobieranych z indeksu naraz, gdy
+	 * limit wyszukiwań nie jest ustawiony.
+	 */
+	private int pageSize = defaultPageSize;
+
 	/**
 	 * Atrybut przechowujący informację o tym, czy podświetlać wyniki wyszukwiania.
 	 */
@@ -94,24 +150,220 @@ public class Searcher {
 	 */
 	private boolean fuzzySearch = false;
 
+	/**
+	 * Pula wątków przeszukujących równolegle segmenty indeksu lub null, gdy
+	 * wyszukiwanie odbywa się w jednym wątku.
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * Pula wątków wykonujących równolegle zapytania do różnych indeksów.
+	 */
+	private final ExecutorService fanout = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "searcher-fanout");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Atrybut przechowujący obiekty klasy SearcherManager indeksów
+	 * przeszukiwanych w ostatnim zapytaniu.
+	 */
+	private SearcherManager[] lastManagers;
+
+	/**
+	 * Atrybut przechowujący pobrane z lastManagers obiekty klasy IndexSearcher
+	 * ostatniego zapytania, z których polecenie next pobiera kolejne wyniki.
+	 * Obiekty są zwalniane dopiero przy kolejnym zapytaniu, więc kolejne strony
+	 * wyników pochodzą z tego samego stanu indeksów.
+	 */
+	private IndexSearcher[] lastSearchers;
+
+	/**
+	 * Atrybut przechowujący etykiety wyników ostatniego zapytania dla każdego
+	 * indeksu lub null, gdy wyniki nie są etykietowane.
+	 */
+	private String[] lastLabels;
+
+	/**
+	 * Atrybut przechowujący ostatnie zapytanie.
+	 */
+	private Query lastQuery;
+
+	/**
+	 * Atrybut przechowujący analizator ostatniego zapytania.
+	 */
+	private Analyzer lastAnalyzer;
+
+	/**
+	 * Atrybut przechowujący ostatni wypisany wynik ostatniego zapytania z każdego
+	 * indeksu lub null, gdy nie ma kolejnych wyników.
+	 */
+	private ScoreDoc[] lastHits;
+
+	/**
+	 * Pamięć podręczna wyników wyszukiwania.
+	 */
+	private final ResultCache cache = new ResultCache(Integer.getInteger("searcher.cacheEntries", 500),
+			Long.getLong("searcher.cacheBytes", 32L * 1024 * 1024));
+
+	/**
+	 * Tekst wypisywanego wyniku, zbierany w celu zapamiętania go w pamięci
+	 * podręcznej, lub null, gdy wynik nie będzie zapamiętany.
+	 */
+	private StringBuilder capture;
+
 	/**
 	 * Konstruktor klasy Searcher.
 	 * 
 	 * @throws IOException
 	 */
 	public Searcher() throws IOException {
-		readerPL = DirectoryReader.open(FSDirectory.open(Paths.get(polishIndexPath)));
-		readerEN = DirectoryReader.open(FSDirectory.open(Paths.get(englishIndexPath)));
+		this(Integer.getInteger("searcher.threads", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Konstruktor klasy Searcher z podaną liczbą wątków wyszukiwania.
+	 * 
+	 * @param threads liczba wątków przeszukujących segmenty indeksu
+	 * @throws IOException
+	 */
+	public Searcher(int threads) throws IOException {
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "searcher");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		SearcherFactory factory = new SearcherFactory() {
+			@Override
+			public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+				return Searcher.this.newSearcher(reader);
+			}
+		};
+		managersPL = openManagers(Paths.get(polishIndexPath), factory);
+		managersEN = openManagers(Paths.get(englishIndexPath), factory);
+
+		long interval = Long.getLong("searcher.refreshInterval", 1000);
+		refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "searcher-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		refresher.scheduleWithFixedDelay(this::refresh, interval, interval,
+				TimeUnit.MILLISECONDS);
+
+		ReferenceManager.RefreshListener invalidate = new ReferenceManager.RefreshListener() {
+			@Override
+			public void beforeRefresh() {
+			}
+
+			@Override
+			public void afterRefresh(boolean didRefresh) {
+				if (didRefresh) {
+					cache.clear();
+				}
+			}
+		};
+		for (SearcherManager manager : allManagers()) {
+			manager.addListener(invalidate);
+		}
+	}
+
+	/**
+	 * Metoda otwierająca obiekty klasy SearcherManager dla wszystkich części
+	 * indeksu w podanym katalogu. Niepodzielony indeks zajmuje cały katalog.
+	 * 
+	 * @param indexPath ścieżka do katalogu indeksu języka
+	 * @param factory   obiekt tworzący obiekty klasy IndexSearcher
+	 * @return obiekty klasy SearcherManager kolejnych części indeksu
+	 * @throws IOException
+	 */
+	private static SearcherManager[] openManagers(Path indexPath, SearcherFactory factory)
+			throws IOException {
+		List<SearcherManager> managers = new ArrayList<SearcherManager>();
+		Path shard;
+		while (Files.isDirectory(shard = indexPath.resolve(shardPrefix + managers.size()))) {
+			managers.add(new SearcherManager(Settings.openDirectory(shard), factory));
+		}
+		if (managers.isEmpty()) {
+			managers.add(new SearcherManager(Settings.openDirectory(indexPath), factory));
+		}
+		return managers.toArray(new SearcherManager[0]);
+	}
+
+	/**
+	 * Metoda dająca w wyniku obiekty klasy SearcherManager wszystkich części
+	 * indeksów obu języków.
+	 * 
+	 * @return lista obiektów klasy SearcherManager
+	 */
+	private List<SearcherManager> allManagers() {
+		List<SearcherManager> managers = new ArrayList<SearcherManager>(Arrays.asList(managersPL));
+		managers.addAll(Arrays.asList(managersEN));
+		return managers;
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy w indeksach pojawiły się nowe zatwierdzone zmiany,
+	 * i otwierająca w takim przypadku jedynie zmienione segmenty. Wyszukiwania w
+	 * toku korzystają dalej z poprzedniego stanu indeksu.
+	 */
+	private void refresh() {
+		try {
+			for (SearcherManager manager : allManagers()) {
+				manager.maybeRefresh();
+			}
+		} catch (IOException e) {
+			System.err.println("Could not refresh index readers");
+		}
 	}
 
 	/**
-	 * Metoda zamykająca obiekty klasy IndexReader.
+	 * Metoda zamykająca obiekty klasy IndexReader oraz pulę wątków wyszukiwania.
 	 * 
 	 * @throws IOException
 	 */
 	public void closeReaders() throws IOException {
-		readerPL.close();
-		readerEN.close();
+		refresher.shutdown();
+		releaseLastSearchers();
+		for (SearcherManager manager : allManagers()) {
+			manager.close();
+		}
+		fanout.shutdown();
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Metoda zwalniająca obiekty klasy IndexSearcher ostatniego zapytania.
+	 * 
+	 * @throws IOException
+	 */
+	private void releaseLastSearchers() throws IOException {
+		if (lastSearchers != null) {
+			for (int i = 0; i < lastSearchers.length; i++) {
+				lastManagers[i].release(lastSearchers[i]);
+			}
+			lastSearchers = null;
+			lastHits = null;
+		}
+	}
+
+	/**
+	 * Metoda tworząca obiekt klasy IndexSearcher dla podanego indeksu.
+	 * 
+	 * @param reader obiekt klasy IndexReader
+	 * @return obiekt klasy IndexSearcher
+	 */
+	private IndexSearcher newSearcher(IndexReader reader) {
+		if (executor == null) {
+			return new IndexSearcher(reader);
+		}
+		return new SlicedIndexSearcher(reader, executor);
 	}
 
 	/**
@@ -122,7 +374,7 @@ public class Searcher {
 	 * @param text  wyszukiwane słowo
 	 * @return obiekt klasy Query
 	 */
-	private Query searchTerm(String field, String text) {
+	private static Query searchTerm(String field, String text) {
 		Term term = new Term(field, text);
 		return new TermQuery(term);
 	}
@@ -135,7 +387,7 @@ public class Searcher {
 	 * @param terms tablica słów, z których składa się wyszukiwana fraza
 	 * @return obiekt klasy Query
 	 */
-	private Query searchPhrase(String field, String[] terms) {
+	private static Query searchPhrase(String field, String[] terms) {
 		return new PhraseQuery(field, terms);
 	}
 
@@ -147,7 +399,7 @@ public class Searcher {
 	 * @param text  wyszukiwane słowo
 	 * @return obiekt klasy Query
 	 */
-	private Query searchFuzzy(String field, String text) {
+	private static Query searchFuzzy(String field, String text) {
 		Term term = new Term(field, text);
 		return new FuzzyQuery(term);
 	}
@@ -191,6 +443,8 @@ public class Searcher {
 			language = "pl";
 		} else if (argument.equals("en")) {
 			language = "en";
+		} else if (argument.equals("all")) {
+			language = "all";
 		} else {
 			throw new WrongArgument(command);
 		}
@@ -223,6 +477,38 @@ public class Searcher {
 		limit = Integer.parseInt(argument);
 	}
 
+	/**
+	 * Metoda odpowiadająca za obsługę polecenia page.
+	 * 
+	 * @param command  polecenie
+	 * @param argument argument dla polecenia
+	 * @throws WrongArgument         wyjątek niepoprawnego argumentu
+	 * @throws NumberFormatException
+	 */
+	private void pageCommand(String command, String argument)
+			throws WrongArgument, NumberFormatException {
+		int size = Integer.parseInt(argument);
+		if (size <= 0) {
+			throw new WrongArgument(command);
+		}
+		pageSize = size;
+	}
+
+	/**
+	 * Metoda odpowiadająca za obsługę polecenia next, wypisująca kolejne wyniki
+	 * ostatniego zapytania.
+	 * 
+	 * @throws IOException
+	 */
+	private void nextCommand() throws IOException {
+		if (lastHits == null) {
+			System.err.println("No more results");
+			return;
+		}
+		int count = (limit == 0) ? pageSize : limit;
+		lastHits = printHits(lastSearchers, lastLabels, lastQuery, lastAnalyzer, lastHits, count);
+	}
+
 	/**
 	 * Metoda odpowiadająca za obsługę polecenia color.
 	 * 
@@ -244,8 +530,9 @@ public class Searcher {
 	 * Metoda obsługująca polecenia sterujące.
 	 * 
 	 * @param splittedLine tablica zwierająca podzieloną linię tekstu
+	 * @throws IOException
 	 */
-	private void controlCommand(String[] splittedLine) {
+	private void controlCommand(String[] splittedLine) throws IOException {
 		int i = 0;
 		String command = splittedLine[i];
 		i++;
@@ -267,6 +554,21 @@ public class Searcher {
 				limitCommand(splittedLine[i]);
 				break;
 
+			case "%page":
+				checkArgumentsNumber(splittedLine, 2);
+				pageCommand(command, splittedLine[i]);
+				break;
+
+			case "%next":
+				checkArgumentsNumber(splittedLine, 1);
+				nextCommand();
+				break;
+
+			case "%cache":
+				checkArgumentsNumber(splittedLine, 1);
+				System.out.println(cache);
+				break;
+
 			case "%color":
 				checkArgumentsNumber(splittedLine, 2);
 				colorCommand(command, splittedLine[i]);
@@ -295,57 +597,449 @@ public class Searcher {
 		} catch (WrongArgument e) {
 			System.err.println("Wrong argument in command " + e.getMessage());
 		} catch (NumberFormatException e) {
-			System.err.println("Wrong number in command %limit");
+			System.err.println("Wrong number in command " + command);
 		} catch (WrongCommand e) {
 			System.err.println("Wrong command " + e.getMessage());
 		}
 	}
 
 	/**
-	 * Metoda odpowiedzialna za drukowanie wyników wyszukiwania.
+	 * Metoda odpowiedzialna za drukowanie wyników wyszukiwania. Bez ustawionego
+	 * limitu wyniki pobierane są z indeksu stronami, więc zużycie pamięci nie
+	 * zależy od liczby trafień. Z ustawionym limitem kolejne wyniki można
+	 * wypisać poleceniem next. Części indeksu, a w trybie wyszukiwania we
+	 * wszystkich językach także indeksy obu języków, przeszukiwane są
+	 * równolegle, a wyniki scalane. W trybie wszystkich języków wyniki
+	 * oznaczane są językiem.
 	 * 
-	 * @param reader   obiekt klasy IndexReader
-	 * @param searcher obiekt klasy IndexSearcher
 	 * @param query    obiekt klasy Query
 	 * @param analyzer obiekt klasy Analyzer
 	 * @throws IOException
-	 * @throws InvalidTokenOffsetsException
 	 */
-	private void printResults(IndexReader reader, IndexSearcher searcher, Query query,
-			Analyzer analyzer) throws IOException, InvalidTokenOffsetsException {
-		TopDocs results;
-		if (limit == 0) {
-			results = searcher.search(query, Integer.MAX_VALUE);
+	private void printResults(Query query, Analyzer analyzer) throws IOException {
+		SearcherManager[] managers = managers(language);
+		String[] labels = language.equals("all") ? labels(language) : null;
+
+		IndexSearcher[] searchers = new IndexSearcher[managers.length];
+		long[] versions = new long[managers.length];
+		for (int i = 0; i < managers.length; i++) {
+			searchers[i] = managers[i].acquire();
+			versions[i] = ((DirectoryReader) searchers[i].getIndexReader()).getVersion();
+		}
+		releaseLastSearchers();
+		lastManagers = managers;
+		lastSearchers = searchers;
+		lastLabels = labels;
+		lastQuery = query;
+		lastAnalyzer = analyzer;
+
+		String key = cacheKey(query);
+		ResultCache.Entry cached = cache.get(key, versions);
+		if (cached != null) {
+			System.out.print(cached.output);
+			lastHits = cached.lastHits;
+			return;
+		}
+
+		capture = new StringBuilder();
+		try {
+			output("Files count: " + count(searchers, query));
+			lastHits = printHits(searchers, labels, query, analyzer,
+					new ScoreDoc[searchers.length], limit);
+			if (capture != null) {
+				cache.put(key, new ResultCache.Entry(capture.toString(), lastHits, versions));
+			}
+		} finally {
+			capture = null;
+		}
+	}
+
+	/**
+	 * Metoda dająca w wyniku obiekty klasy SearcherManager części indeksów
+	 * przeszukiwanych w podanym języku.
+	 * 
+	 * @param language język: pl, en lub all
+	 * @return obiekty klasy SearcherManager
+	 */
+	private SearcherManager[] managers(String language) {
+		if (language.equals("pl")) {
+			return managersPL;
+		} else if (language.equals("en")) {
+			return managersEN;
+		}
+		return allManagers().toArray(new SearcherManager[0]);
+	}
+
+	/**
+	 * Metoda dająca w wyniku języki kolejnych części indeksów przeszukiwanych w
+	 * podanym języku.
+	 * 
+	 * @param language język: pl, en lub all
+	 * @return języki części indeksów
+	 */
+	private String[] labels(String language) {
+		String[] labels = new String[managers(language).length];
+		if (language.equals("all")) {
+			Arrays.fill(labels, 0, managersPL.length, "pl");
+			Arrays.fill(labels, managersPL.length, labels.length, "en");
 		} else {
-			results = searcher.search(query, limit);
-		}
-		ScoreDoc[] hits = results.scoreDocs;
-		int numberOfHits = Math.toIntExact(results.totalHits.value);
-
-		System.out.println("Files count: " + numberOfHits);
-
-		Formatter formatter = new MyFormatter(color);
-		QueryScorer scorer = new QueryScorer(query);
-		Highlighter highlighter = new Highlighter(formatter, scorer);
-		Fragmenter fragmenter = new SimpleSpanFragmenter(scorer, 50);
-		highlighter.setTextFragmenter(fragmenter);
-
-		for (int i = 0; i < hits.length; i++) {
-			int docId = hits[i].doc;
-			Document document = searcher.doc(hits[i].doc);
-			String path = document.get("path");
-			System.out.println(path);
-			if (details) {
-				@SuppressWarnings("deprecation")
-				TokenStream stream = TokenSources.getAnyTokenStream(reader, docId, "contents",
-						analyzer);
-				String[] fragments = highlighter.getBestFragments(stream, document.get("contents"),
-						10);
-				for (String f : fragments) {
-					System.out.println("... " + f + " ...");
+			Arrays.fill(labels, language);
+		}
+		return labels;
+	}
+
+	/**
+	 * Klasa przechowująca pojedynczy wynik wyszukiwania.
+	 */
+	static class Hit {
+		/**
+		 * Ścieżka do dokumentu.
+		 */
+		final String path;
+
+		/**
+		 * Język dokumentu.
+		 */
+		final String language;
+
+		/**
+		 * Trafność dokumentu.
+		 */
+		final float score;
+
+		/**
+		 * Konteksty wyniku lub null, gdy nie były wyznaczane.
+		 */
+		final String context;
+
+		/**
+		 * Konstruktor klasy Hit.
+		 * 
+		 * @param path     ścieżka do dokumentu
+		 * @param language język dokumentu
+		 * @param score    trafność dokumentu
+		 * @param context  konteksty wyniku
+		 */
+		Hit(String path, String language, float score, String context) {
+			this.path = path;
+			this.language = language;
+			this.score = score;
+			this.context = context;
+		}
+	}
+
+	/**
+	 * Metoda wyszukująca dokumenty niezależnie od ustawień interaktywnych, więc
+	 * może być wywoływana równocześnie z wielu wątków.
+	 * 
+	 * @param language język: pl, en lub all
+	 * @param query    obiekt klasy Query
+	 * @param analyzer obiekt klasy Analyzer
+	 * @param limit    maksymalna liczba wyników; 0 oznacza wszystkie wyniki
+	 * @param pageSize liczba wyników pobieranych z indeksu naraz
+	 * @param details  informacja, czy wyznaczać konteksty wyników
+	 * @param hits     lista, do której dodawane są wyniki
+	 * @return liczba wszystkich pasujących dokumentów
+	 * @throws IOException
+	 */
+	int search(String language, Query query, Analyzer analyzer, int limit, int pageSize,
+			boolean details, List<Hit> hits) throws IOException {
+		SearcherManager[] managers = managers(language);
+		String[] labels = labels(language);
+		IndexSearcher[] searchers = new IndexSearcher[managers.length];
+		try {
+			for (int i = 0; i < managers.length; i++) {
+				searchers[i] = managers[i].acquire();
+			}
+			UnifiedHighlighter[] highlighters = new UnifiedHighlighter[searchers.length];
+			for (int i = 0; i < searchers.length && details; i++) {
+				highlighters[i] = newHighlighter(searchers[i], analyzer, false);
+			}
+
+			ScoreDoc[] after = new ScoreDoc[searchers.length];
+			int remaining = limit;
+			while (limit == 0 || remaining > 0) {
+				int size = (limit == 0) ? pageSize : Math.min(remaining, pageSize);
+				ScoreDoc[] page = page(searchers, query, after, size);
+				String[] fragments = details ? highlight(highlighters, query, page) : null;
+				for (int i = 0; i < page.length; i++) {
+					int index = page[i].shardIndex;
+					Document document = searchers[index].doc(page[i].doc, pathField);
+					hits.add(new Hit(document.get("path"), labels[index], page[i].score,
+							(fragments == null) ? null : fragments[i]));
+					after[index] = page[i];
+				}
+				if (page.length < size) {
+					break;
+				}
+				remaining -= page.length;
+			}
+			return count(searchers, query);
+		} finally {
+			for (int i = 0; i < searchers.length; i++) {
+				if (searchers[i] != null) {
+					managers[i].release(searchers[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Metoda dająca w wyniku nazwę bieżącego sposobu wyszukiwania.
+	 * 
+	 * @return term, phrase lub fuzzy
+	 */
+	private String mode() {
+		return termSearch ? "term" : (phraseSearch ? "phrase" : "fuzzy");
+	}
+
+	/**
+	 * Metoda tworząca obiekt klasy Query dla podanego sposobu wyszukiwania i
+	 * wyszukiwanego tekstu.
+	 * 
+	 * @param mode sposób wyszukiwania: term, phrase lub fuzzy
+	 * @param text wyszukiwany tekst
+	 * @return obiekt klasy Query
+	 * @throws IncorrectSearchingArgument wyjątek niepoprawnego szukanego
+	 *                                    wyrażenia
+	 */
+	static Query buildQuery(String mode, String text) throws IncorrectSearchingArgument {
+		String[] words = text.split(" ");
+		if (mode.equals("term")) {
+			if (words.length > 1) {
+				throw new IncorrectSearchingArgument();
+			}
+			return searchTerm("contents", text);
+		} else if (mode.equals("phrase")) {
+			return searchPhrase("contents", words);
+		}
+		return searchFuzzy("contents", text);
+	}
+
+	/**
+	 * Metoda tworząca klucz pamięci podręcznej dla zapytania, uwzględniający
+	 * wszystkie ustawienia wpływające na wypisywany wynik.
+	 * 
+	 * @param query obiekt klasy Query
+	 * @return klucz zapytania
+	 */
+	private String cacheKey(Query query) {
+		return language + "|" + mode() + "|" + limit + "|" + details + "|" + color + "|" + query;
+	}
+
+	/**
+	 * Metoda wypisująca linię wyniku i zbierająca ją do zapamiętania, dopóki
+	 * wynik nie przekroczy rozmiaru, który można zapamiętać.
+	 * 
+	 * @param line linia wyniku
+	 */
+	private void output(String line) {
+		System.out.println(line);
+		if (capture != null) {
+			capture.append(line).append(System.lineSeparator());
+			if (capture.length() > cache.maxEntryChars()) {
+				capture = null;
+			}
+		}
+	}
+
+	/**
+	 * Interfejs zapytania wykonywanego na pojedynczym indeksie.
+	 * 
+	 * @param <T> typ wyniku zapytania
+	 */
+	private interface IndexTask<T> {
+		/**
+		 * Metoda wykonująca zapytanie na indeksie o podanym numerze.
+		 * 
+		 * @param index numer indeksu
+		 * @return wynik zapytania
+		 * @throws IOException
+		 */
+		T run(int index) throws IOException;
+	}
+
+	/**
+	 * Metoda wykonująca podane zapytanie na każdym z indeksów. Zapytania do
+	 * różnych indeksów wykonywane są równolegle.
+	 * 
+	 * @param <T>     typ wyniku zapytania
+	 * @param indexes liczba indeksów
+	 * @param task    zapytanie
+	 * @return lista wyników zapytania dla kolejnych indeksów
+	 * @throws IOException
+	 */
+	private <T> List<T> forEachIndex(int indexes, IndexTask<T> task) throws IOException {
+		List<T> results = new ArrayList<T>(indexes);
+		if (indexes == 1) {
+			results.add(task.run(0));
+			return results;
+		}
+
+		List<Future<T>> futures = new ArrayList<Future<T>>(indexes);
+		for (int i = 0; i < indexes; i++) {
+			final int index = i;
+			futures.add(fanout.submit(() -> task.run(index)));
+		}
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while searching");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		return results;
+	}
+
+	/**
+	 * Metoda licząca dokumenty pasujące do zapytania we wszystkich podanych
+	 * indeksach.
+	 * 
+	 * @param searchers obiekty klasy IndexSearcher przeszukiwanych indeksów
+	 * @param query     obiekt klasy Query
+	 * @return liczba pasujących dokumentów
+	 * @throws IOException
+	 */
+	private int count(IndexSearcher[] searchers, Query query) throws IOException {
+		int count = 0;
+		for (int c : forEachIndex(searchers.length, i -> searchers[i].count(query))) {
+			count += c;
+		}
+		return count;
+	}
+
+	/**
+	 * Metoda drukująca podaną liczbę wyników wyszukiwania następujących po
+	 * podanych wynikach. Z każdego indeksu pobierana jest strona wyników, a
+	 * strony scalane są według trafności.
+	 * 
+	 * @param searchers obiekty klasy IndexSearcher przeszukiwanych indeksów
+	 * @param labels    etykiety wyników dla każdego indeksu lub null
+	 * @param query     obiekt klasy Query
+	 * @param analyzer  obiekt klasy Analyzer
+	 * @param after     ostatni wypisany wynik z każdego indeksu, po którym
+	 *                  zaczynamy, lub null dla indeksów bez wypisanych wyników
+	 * @param count     liczba wyników do wypisania; 0 oznacza wszystkie wyniki
+	 * @return ostatni wypisany wynik z każdego indeksu lub null, jeśli nie ma
+	 *         kolejnych wyników
+	 * @throws IOException
+	 */
+	private ScoreDoc[] printHits(IndexSearcher[] searchers, String[] labels, Query query,
+			Analyzer analyzer, ScoreDoc[] after, int count) throws IOException {
+		after = after.clone();
+		UnifiedHighlighter[] highlighters = new UnifiedHighlighter[searchers.length];
+		for (int i = 0; i < searchers.length && details; i++) {
+			highlighters[i] = newHighlighter(searchers[i], analyzer, color);
+		}
+
+		int remaining = count;
+		while (count == 0 || remaining > 0) {
+			int size = (count == 0) ? pageSize : Math.min(remaining, pageSize);
+			ScoreDoc[] hits = page(searchers, query, after, size);
+
+			String[] fragments = details ? highlight(highlighters, query, hits) : null;
+			for (int i = 0; i < hits.length; i++) {
+				int index = hits[i].shardIndex;
+				Document document = searchers[index].doc(hits[i].doc, pathField);
+				if (labels == null) {
+					output(document.get("path"));
+				} else {
+					output("[" + labels[index] + "] " + document.get("path"));
+				}
+				if (fragments != null && fragments[i] != null && !fragments[i].isEmpty()) {
+					output(fragments[i]);
+				}
+				after[index] = hits[i];
+			}
+
+			if (hits.length < size) {
+				return null;
+			}
+			remaining -= hits.length;
+		}
+		return after;
+	}
+
+	/**
+	 * Metoda pobierająca z każdego indeksu stronę wyników następujących po
+	 * podanych wynikach i scalająca strony według trafności.
+	 * 
+	 * @param searchers obiekty klasy IndexSearcher przeszukiwanych indeksów
+	 * @param query     obiekt klasy Query
+	 * @param after     ostatni pobrany wynik z każdego indeksu lub null
+	 * @param size      rozmiar strony
+	 * @return scalone wyniki z numerem indeksu w polu shardIndex
+	 * @throws IOException
+	 */
+	private ScoreDoc[] page(IndexSearcher[] searchers, Query query, ScoreDoc[] after, int size)
+			throws IOException {
+		List<TopDocs> pages = forEachIndex(searchers.length,
+				i -> searchers[i].searchAfter(after[i], query, size));
+		return TopDocs.merge(0, size, pages.toArray(new TopDocs[0]), true).scoreDocs;
+	}
+
+	/**
+	 * Metoda tworząca obiekt wyznaczający konteksty wyników na podstawie
+	 * zaindeksowanych pozycji słów.
+	 * 
+	 * @param searcher obiekt klasy IndexSearcher
+	 * @param analyzer obiekt klasy Analyzer
+	 * @param color    informacja, czy wyróżniać słowa kolorem
+	 * @return obiekt klasy UnifiedHighlighter
+	 */
+	private UnifiedHighlighter newHighlighter(IndexSearcher searcher, Analyzer analyzer,
+			boolean color) {
+		UnifiedHighlighter highlighter = new UnifiedHighlighter(searcher, analyzer);
+		highlighter.setFormatter(new MyFormatter(color));
+		highlighter.setBreakIterator(() -> LengthGoalBreakIterator
+				.createClosestToLength(BreakIterator.getWordInstance(Locale.ROOT), fragmentSize));
+		highlighter.setMaxLength(maxHighlightedLength);
+		highlighter.setMaxNoHighlightPassages(0);
+		return highlighter;
+	}
+
+	/**
+	 * Metoda wyznaczająca konteksty dla podanych wyników. Konteksty wyznaczane
+	 * są naraz dla wszystkich wyników z tego samego indeksu.
+	 * 
+	 * @param highlighters obiekty klasy UnifiedHighlighter dla każdego indeksu
+	 * @param query        obiekt klasy Query
+	 * @param hits         wyniki wyszukiwania
+	 * @return konteksty w kolejności wyników
+	 * @throws IOException
+	 */
+	private String[] highlight(UnifiedHighlighter[] highlighters, Query query, ScoreDoc[] hits)
+			throws IOException {
+		String[] fragments = new String[hits.length];
+		for (int index = 0; index < highlighters.length; index++) {
+			int found = 0;
+			int[] positions = new int[hits.length];
+			int[] docIds = new int[hits.length];
+			for (int i = 0; i < hits.length; i++) {
+				if (hits[i].shardIndex == index) {
+					positions[found] = i;
+					docIds[found] = hits[i].doc;
+					found++;
 				}
 			}
+			if (found == 0) {
+				continue;
+			}
+
+			String[] highlighted = highlighters[index].highlightFields(
+					new String[] { "contents" }, query, Arrays.copyOf(docIds, found),
+					new int[] { maxFragments }).get("contents");
+			for (int i = 0; i < found; i++) {
+				fragments[positions[i]] = highlighted[i];
+			}
 		}
+		return fragments;
 	}
 
 	/**
@@ -354,15 +1048,11 @@ public class Searcher {
 	 * @throws IOException
 	 */
 	public void searchAndPrintResults() throws IOException {
-		IndexSearcher searcherPL = new IndexSearcher(readerPL);
-		IndexSearcher searcherEN = new IndexSearcher(readerEN);
 		Analyzer analyzer = new StandardAnalyzer();
 		String line;
 		String[] splittedLine;
 		Query query;
 
-		IndexReader mainReader = readerEN;
-		IndexSearcher mainSearcher = searcherEN;
 
 		try (Scanner scanner = new Scanner(System.in)) {
 			while (true) {
@@ -374,36 +1064,16 @@ public class Searcher {
 						splittedLine = line.split(" ");
 						if (line.charAt(0) == '%') {
 							controlCommand(splittedLine);
-							if (language.equals("pl")) {
-								mainSearcher = searcherPL;
-								mainReader = readerPL;
-							} else {
-								mainSearcher = searcherEN;
-								mainReader = readerEN;
-							}
 						} else {
-							if (termSearch) {
-								if (splittedLine.length > 1) {
-									throw new IncorrectSearchingArgument();
-								} else {
-									query = searchTerm("contents", line);
-									printResults(mainReader, mainSearcher, query, analyzer);
-								}
-							} else if (phraseSearch) {
-								query = searchPhrase("contents", splittedLine);
-								printResults(mainReader, mainSearcher, query, analyzer);
-							} else if (fuzzySearch) {
-								if ((line.length() < 4) && details) {
-									System.err.println(
-											"Could not write context for phrase shorter than 4 characters");
-									details = false;
-									query = searchFuzzy("contents", line);
-									printResults(mainReader, mainSearcher, query, analyzer);
-									details = true;
-								} else {
-									query = searchFuzzy("contents", line);
-									printResults(mainReader, mainSearcher, query, analyzer);
-								}
+							query = buildQuery(mode(), line);
+							if (fuzzySearch && (line.length() < 4) && details) {
+								System.err.println(
+										"Could not write context for phrase shorter than 4 characters");
+								details = false;
+								printResults(query, analyzer);
+								details = true;
+							} else {
+								printResults(query, analyzer);
 							}
 						}
 					}
@@ -411,8 +1081,6 @@ public class Searcher {
 					System.err.println("Incorrect searching argument");
 				}
 			}
-		} catch (InvalidTokenOffsetsException e) {
-			System.err.println("Invalid token off sets");
 		}
 	}
 
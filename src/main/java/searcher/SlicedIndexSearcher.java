@@ -0,0 +1,80 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Klasa odpowiadająca za wyszukiwanie w indeksie przy użyciu puli wątków.
+ * Segmenty indeksu grupowane są w porcje przeszukiwane równolegle: duże
+ * segmenty tworzą osobne porcje, a małe są łączone, tak aby porcje miały
+ * zbliżoną liczbę dokumentów.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+public class SlicedIndexSearcher extends IndexSearcher {
+	/**
+	 * Maksymalna liczba dokumentów w porcji złożonej z wielu segmentów.
+	 */
+	private static final int maxDocsPerSlice = Integer.getInteger("searcher.sliceMaxDocs",
+			250000);
+
+	/**
+	 * Maksymalna liczba segmentów w jednej porcji.
+	 */
+	private static final int maxSegmentsPerSlice = Integer.getInteger("searcher.sliceMaxSegments",
+			5);
+
+	/**
+	 * Konstruktor klasy SlicedIndexSearcher.
+	 * 
+	 * @param reader   obiekt klasy IndexReader
+	 * @param executor pula wątków przeszukujących porcje segmentów
+	 */
+	public SlicedIndexSearcher(IndexReader reader, ExecutorService executor) {
+		super(reader, executor);
+	}
+
+	/**
+	 * Nadpisana metoda dzieląca segmenty indeksu na porcje. Segmenty
+	 * przeglądane są od największego; segment większy niż limit porcji tworzy
+	 * osobną porcję, a mniejsze dołączane są do bieżącej porcji, dopóki nie
+	 * zostanie przekroczony limit dokumentów lub segmentów.
+	 */
+	@Override
+	protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+		List<LeafReaderContext> sorted = new ArrayList<LeafReaderContext>(leaves);
+		sorted.sort(Comparator.comparingInt(
+				(LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+		List<LeafSlice> slices = new ArrayList<LeafSlice>();
+		List<LeafReaderContext> group = new ArrayList<LeafReaderContext>();
+		long docs = 0;
+		for (LeafReaderContext leaf : sorted) {
+			int maxDoc = leaf.reader().maxDoc();
+			if (maxDoc > maxDocsPerSlice) {
+				slices.add(new LeafSlice(leaf));
+				continue;
+			}
+
+			if (!group.isEmpty()
+					&& (docs + maxDoc > maxDocsPerSlice || group.size() >= maxSegmentsPerSlice)) {
+				slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+				group.clear();
+				docs = 0;
+			}
+			group.add(leaf);
+			docs += maxDoc;
+		}
+		if (!group.isEmpty()) {
+			slices.add(new LeafSlice(group.toArray(new LeafReaderContext[0])));
+		}
+		return slices.toArray(new LeafSlice[0]);
+	}
+}
@@ -0,0 +1,210 @@
+package indexer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy łączenia i stosowania zebranych wydarzeń obserwatora katalogów.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class DirectoryWatcherTest extends IndexFixture {
+	/**
+	 * Obserwowany katalog.
+	 */
+	@TempDir
+	Path root;
+
+	/**
+	 * Obserwator bez zarejestrowanych katalogów.
+	 */
+	private DirectoryWatcher watcher;
+
+	/**
+	 * Indekser.
+	 */
+	private Indexer indexer;
+
+	/**
+	 * Metoda tworząca pusty indeks i obserwatora.
+	 * 
+	 * @throws IOException
+	 */
+	@BeforeEach
+	void setUp() throws IOException {
+		indexer = new Indexer(2);
+		Path directories = Files.createFile(root.resolve("directories.txt"));
+		watcher = new DirectoryWatcher(directories, false);
+	}
+
+	/**
+	 * Metoda zamykająca indekser przed usunięciem indeksu.
+	 * 
+	 * @throws IOException
+	 */
+	@AfterEach
+	void tearDown() throws IOException {
+		indexer.closeIndexWriters();
+	}
+
+	/**
+	 * Modyfikacja utworzonego katalogu nie zastępuje jego utworzenia, więc
+	 * zawartość katalogu zostaje zaindeksowana.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void modifyAfterCreateIsStillCreate() throws IOException {
+		Path file = write(root.resolve("new/a.txt"), english);
+
+		watcher.addPending(file.getParent(), ENTRY_CREATE);
+		watcher.addPending(file.getParent(), ENTRY_MODIFY);
+		apply();
+
+		assertThat(count(file)).isEqualTo(1);
+	}
+
+	/**
+	 * Plik utworzony i usunięty w tej samej porcji wydarzeń nie trafia do
+	 * indeksu.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void deleteAfterCreateLeavesNothing() throws IOException {
+		Path file = write(root.resolve("a.txt"), english);
+
+		watcher.addPending(file, ENTRY_CREATE);
+		Files.delete(file);
+		watcher.addPending(file, ENTRY_DELETE);
+		apply();
+
+		assertThat(count(file)).isEqualTo(0);
+	}
+
+	/**
+	 * Plik usunięty i utworzony ponownie w tej samej porcji wydarzeń jest
+	 * zaindeksowany.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void createAfterDeleteIndexesTheFile() throws IOException {
+		Path file = root.resolve("a.txt");
+
+		watcher.addPending(file, ENTRY_DELETE);
+		write(file, english);
+		watcher.addPending(file, ENTRY_CREATE);
+		apply();
+
+		assertThat(count(file)).isEqualTo(1);
+	}
+
+	/**
+	 * Usunięcie katalogu usuwa z indeksu całą jego zawartość, ale nie zawartość
+	 * katalogu o nazwie zaczynającej się tak samo.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void deletedDirectoryRemovesOnlyItsSubtree() throws IOException {
+		Path nested = write(root.resolve("foo/sub/a.txt"), english);
+		Path sibling = write(root.resolve("foobar/b.txt"), english);
+		indexer.indexDocuments(root, new Languages());
+		indexer.commit();
+
+		watcher.addPending(root.resolve("foo"), ENTRY_DELETE);
+		apply();
+
+		assertThat(count(nested)).isEqualTo(0);
+		assertThat(count(sibling)).isEqualTo(1);
+	}
+
+	/**
+	 * Modyfikacja zaindeksowanego pliku podmienia jego dokument, także gdy
+	 * zmienia się język pliku.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void modifiedFileIsReplaced() throws IOException {
+		Path file = write(root.resolve("a.txt"), english);
+		indexer.indexDocuments(file, new Languages());
+		indexer.commit();
+
+		write(file, "Ala ma kota, a kot ma Alę. Na łące rosną piękne kwiaty, nad którymi "
+				+ "świeci słońce, a pies biega wokół drzewa i szczeka na ptaki.");
+		watcher.addPending(file, ENTRY_MODIFY);
+		watcher.addPending(file, ENTRY_MODIFY);
+		apply();
+
+		assertThat(count(file)).isEqualTo(1);
+	}
+
+	/**
+	 * Modyfikacja, po której pliku nie da się sparsować, usuwa z indeksu jego
+	 * poprzednią treść.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void modifiedFileThatFailsToParseIsRemoved() throws IOException {
+		Path file = write(root.resolve("a.txt"), english);
+		indexer.indexDocuments(file, new Languages());
+		indexer.commit();
+		assertThat(count(file)).isEqualTo(1);
+
+		write(file, "%PDF-1.4 " + english);
+		watcher.addPending(file, ENTRY_MODIFY);
+		apply();
+
+		assertThat(count(file)).isEqualTo(0);
+	}
+
+	/**
+	 * Modyfikacja pliku odrzucanego teraz przez filtr usuwa z indeksu jego
+	 * poprzednią treść.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void modifiedFileRejectedByFilterIsRemoved() throws IOException {
+		Path file = write(root.resolve("a.log"), english);
+		indexer.indexDocuments(file, new Languages());
+		indexer.closeIndexWriters();
+
+		System.setProperty("filter.exclude", "*.log");
+		try {
+			indexer = new Indexer(2);
+		} finally {
+			System.clearProperty("filter.exclude");
+		}
+		write(file, english + " " + english);
+		watcher.addPending(file, ENTRY_MODIFY);
+		apply();
+
+		assertThat(count(file)).isEqualTo(0);
+	}
+
+	/**
+	 * Metoda stosująca zebrane wydarzenia i zatwierdzająca zmiany.
+	 * 
+	 * @throws IOException
+	 */
+	private void apply() throws IOException {
+		watcher.applyPending(indexer, new Languages());
+		indexer.commit();
+	}
+}
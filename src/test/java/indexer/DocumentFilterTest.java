@@ -0,0 +1,152 @@
+package indexer;
+
+import static indexer.IndexFixture.write;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy reguł odrzucania plików przed parsowaniem.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class DocumentFilterTest {
+	/**
+	 * Katalog z plikami.
+	 */
+	@TempDir
+	Path root;
+
+	/**
+	 * Metoda przywracająca domyślne ustawienia filtra.
+	 */
+	@AfterEach
+	void tearDown() {
+		for (String key : System.getProperties().stringPropertyNames()) {
+			if (key.startsWith("filter.")) {
+				System.clearProperty(key);
+			}
+		}
+	}
+
+	/**
+	 * Domyślnie pomijane są katalogi systemów kontroli wersji, także bez
+	 * przeglądania, a zwykłe pliki tekstowe są indeksowane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void versionControlDirectoriesAreExcludedByDefault() throws IOException {
+		Path object = write(root.resolve(".git/objects/ab"), "blob");
+		Path text = write(root.resolve("notes.txt"), "notes");
+		DocumentFilter filter = new DocumentFilter();
+
+		assertThat(filter.skip(object)).isEqualTo("exclude **/.git/**");
+		assertThat(filter.skipDirectory(root.resolve(".git"))).isTrue();
+		assertThat(filter.skipDirectory(root.resolve("src"))).isFalse();
+		assertThat(filter.skip(text)).isNull();
+	}
+
+	/**
+	 * Wzorzec bez znaku / dopasowywany jest do nazwy pliku, a pozostałe do
+	 * całej ścieżki; katalogi pomijane są bez przeglądania tylko dla wzorców
+	 * postaci katalog/**.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void globsMatchNamesOrWholePaths() throws IOException {
+		System.setProperty("filter.exclude", "*.log,**/build/**");
+		System.setProperty("filter.include", "*.txt,*.log");
+		Path log = write(root.resolve("app.log"), "log");
+		Path built = write(root.resolve("build/out.txt"), "out");
+		Path pdf = write(root.resolve("paper.pdf"), "pdf");
+		Path text = write(root.resolve("logs/notes.txt"), "notes");
+		DocumentFilter filter = new DocumentFilter();
+
+		assertThat(filter.skip(log)).isEqualTo("exclude *.log");
+		assertThat(filter.skip(built)).isEqualTo("exclude **/build/**");
+		assertThat(filter.skip(pdf)).isEqualTo("include");
+		assertThat(filter.skip(text)).isNull();
+		assertThat(filter.skipDirectory(root.resolve("build"))).isTrue();
+		assertThat(filter.skipDirectory(root.resolve("logs"))).isFalse();
+	}
+
+	/**
+	 * Typ MIME ustalany jest na podstawie nazwy pliku, nawet gdy zawartość
+	 * wskazuje inny typ, a wzorzec typ/* obejmuje wszystkie podtypy.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void typeIsDetectedFromNameFirst() throws IOException {
+		Path movie = write(root.resolve("movie.mp4"), "plain text");
+		Path text = write(root.resolve("notes.txt"), "%PDF-1.4\n");
+		DocumentFilter filter = new DocumentFilter();
+
+		assertThat(filter.skip(movie)).isEqualTo("deny video/*");
+		assertThat(filter.skip(text)).isNull();
+	}
+
+	/**
+	 * Dla pliku, którego nazwa nie wskazuje typu, typ wykrywany jest na
+	 * podstawie nagłówka.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void headerIsSniffedWhenNameIsAmbiguous() throws IOException {
+		System.setProperty("filter.deny", "application/pdf");
+		Path pdf = write(root.resolve("scan"), "%PDF-1.4\n");
+		Path text = write(root.resolve("readme"), "plain text");
+		DocumentFilter filter = new DocumentFilter();
+
+		assertThat(filter.skip(pdf)).isEqualTo("deny application/pdf");
+		assertThat(filter.skip(text)).isNull();
+	}
+
+	/**
+	 * Przy liście dozwolonych typów pliki innych typów są odrzucane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void onlyAllowedTypesAreIndexed() throws IOException {
+		System.setProperty("filter.allow", "text/*");
+		Path pdf = write(root.resolve("paper.pdf"), "pdf");
+		Path html = write(root.resolve("page.html"), "<html></html>");
+		DocumentFilter filter = new DocumentFilter();
+
+		assertThat(filter.skip(pdf)).isEqualTo("allow");
+		assertThat(filter.skip(html)).isNull();
+	}
+
+	/**
+	 * Pliki większe niż limit, ogólny lub dla danego typu, są odrzucane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void sizeLimitsApply() throws IOException {
+		Path large = Files.write(root.resolve("large.txt"), new byte[2 * 1024 * 1024]);
+		Path small = write(root.resolve("small.txt"), "small");
+
+		System.setProperty("filter.maxSizeMB", "1");
+		DocumentFilter filter = new DocumentFilter();
+		assertThat(filter.skip(large)).isEqualTo("maxSize");
+		assertThat(filter.skip(small)).isNull();
+
+		System.clearProperty("filter.maxSizeMB");
+		System.setProperty("filter.maxSizeMB.text/*", "1");
+		filter = new DocumentFilter();
+		assertThat(filter.skip(large)).isEqualTo("maxSize text/*");
+		assertThat(filter.skip(small)).isNull();
+	}
+}
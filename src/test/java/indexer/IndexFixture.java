@@ -0,0 +1,100 @@
+package indexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Klasa bazowa testów, które budują indeks w katalogu index, z metodami
+ * pomocniczymi do tworzenia plików i zliczania zaindeksowanych dokumentów.
+ * Indeks jest usuwany przed każdym testem i po nim.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+abstract class IndexFixture {
+	/**
+	 * Tekst w języku angielskim.
+	 */
+	static final String english = "The quick brown fox jumps over the lazy dog. "
+			+ "Search engines read documents and build an index of the words they contain, "
+			+ "so that people can find the books they are looking for.";
+
+	/**
+	 * Metoda usuwająca indeks pozostały po poprzednich testach.
+	 * 
+	 * @throws IOException
+	 */
+	@BeforeEach
+	void deleteIndexBefore() throws IOException {
+		Indexer.deleteRecursively(Paths.get("index"));
+	}
+
+	/**
+	 * Metoda usuwająca indeks utworzony przez test.
+	 * 
+	 * @throws IOException
+	 */
+	@AfterEach
+	void deleteIndexAfter() throws IOException {
+		Indexer.deleteRecursively(Paths.get("index"));
+	}
+
+	/**
+	 * Metoda zapisująca tekst do pliku, tworząca brakujące katalogi.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @param text tekst
+	 * @return ścieżka do pliku
+	 * @throws IOException
+	 */
+	static Path write(Path file, String text) throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		return Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Metoda zliczająca dokumenty o podanej ścieżce w obu indeksach.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return liczba dokumentów
+	 * @throws IOException
+	 */
+	static int count(Path file) throws IOException {
+		return count("index/indexPL", file) + count("index/indexEN", file);
+	}
+
+	/**
+	 * Metoda zliczająca dokumenty o podanej ścieżce w podanym indeksie.
+	 * Brakujący indeks nie zawiera żadnych dokumentów.
+	 * 
+	 * @param index ścieżka do indeksu
+	 * @param file  ścieżka do pliku
+	 * @return liczba dokumentów
+	 * @throws IOException
+	 */
+	static int count(String index, Path file) throws IOException {
+		try (Directory directory = FSDirectory.open(Paths.get(index))) {
+			if (!DirectoryReader.indexExists(directory)) {
+				return 0;
+			}
+			try (DirectoryReader reader = DirectoryReader.open(directory)) {
+				return new IndexSearcher(reader)
+						.count(new TermQuery(new Term("path", file.toString())));
+			}
+		}
+	}
+}
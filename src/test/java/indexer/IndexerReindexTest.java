@@ -0,0 +1,100 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy przyrostowego reindeksowania katalogów.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class IndexerReindexTest extends IndexFixture {
+	/**
+	 * Katalog z dokumentami.
+	 */
+	@TempDir
+	Path root;
+
+	/**
+	 * Zmieniony plik, który przy reindeksowaniu nie został zaindeksowany, znika
+	 * z indeksu razem z plikiem usuniętym, a niezmieniony plik zostaje.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void reindexRemovesFilesNotIndexedAgain() throws IOException {
+		Path kept = write(root.resolve("kept.txt"), english);
+		Path removed = write(root.resolve("removed.txt"), english);
+		Path quarantined = write(root.resolve("quarantined.txt"), english);
+		List<Path> directories = Collections.singletonList(root);
+
+		Indexer indexer = new Indexer(2);
+		indexer.indexDocuments(root, new Languages());
+		indexer.closeIndexWriters();
+		Files.delete(removed);
+		write(quarantined, english + " The fox was changed.");
+		Files.write(Paths.get("index/quarantine.txt"), Collections.singletonList("2\t"
+				+ Files.size(quarantined) + "\t" + Files.getLastModifiedTime(quarantined).toMillis()
+				+ "\t" + quarantined), StandardCharsets.UTF_8);
+
+		indexer = new Indexer(2);
+		indexer.reindexDocuments(directories, new Languages());
+		indexer.closeIndexWriters();
+
+		assertThat(count(kept)).isEqualTo(1);
+		assertThat(count(removed)).isEqualTo(0);
+		assertThat(count(quarantined)).isEqualTo(0);
+		assertThat(Files.readAllLines(Paths.get("index/manifest.txt")))
+				.anyMatch(line -> line.endsWith(kept.toString()))
+				.noneMatch(line -> line.endsWith(quarantined.toString()));
+	}
+
+	/**
+	 * Pliki, które po zmianie ustawień odrzuca filtr, znikają z indeksu i ze
+	 * spisu, także gdy same się nie zmieniły.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void reindexRemovesFilesRejectedByFilter() throws IOException {
+		Path kept = write(root.resolve("kept.txt"), english);
+		Path excluded = write(root.resolve("excluded.log"), english);
+		Files.createDirectory(root.resolve("build"));
+		Path pruned = write(root.resolve("build/pruned.txt"), english);
+		List<Path> directories = Collections.singletonList(root);
+
+		Indexer indexer = new Indexer(2);
+		indexer.indexDocuments(root, new Languages());
+		indexer.closeIndexWriters();
+		assertThat(count(excluded)).isEqualTo(1);
+		assertThat(count(pruned)).isEqualTo(1);
+
+		System.setProperty("filter.exclude", "*.log,**/build/**");
+		try {
+			indexer = new Indexer(2);
+			indexer.reindexDocuments(directories, new Languages());
+			indexer.closeIndexWriters();
+		} finally {
+			System.clearProperty("filter.exclude");
+		}
+
+		assertThat(count(kept)).isEqualTo(1);
+		assertThat(count(excluded)).isEqualTo(0);
+		assertThat(count(pruned)).isEqualTo(0);
+		assertThat(Files.readAllLines(Paths.get("index/manifest.txt")))
+				.anyMatch(line -> line.endsWith(kept.toString()))
+				.noneMatch(line -> line.endsWith(excluded.toString()))
+				.noneMatch(line -> line.endsWith(pruned.toString()));
+	}
+}
@@ -0,0 +1,94 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testy usuwania katalogów z indeksu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class IndexerRemoveTest extends IndexFixture {
+	/**
+	 * Z indeksu zbudowanego bez termów katalogów usuwana jest cała zawartość
+	 * katalogu, ale nie katalog o nazwie z tym samym przedrostkiem.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void removeDirectoryFromIndexWithoutAncestorTerms() throws IOException {
+		Path directory = Paths.get("/data/foo").toAbsolutePath();
+		Path nested = directory.resolve("a/first.txt");
+		Path sibling = Paths.get("/data/foobar/second.txt").toAbsolutePath();
+		try (Directory polish = FSDirectory.open(Paths.get("index/indexPL"));
+				IndexWriter writer = new IndexWriter(polish,
+						new IndexWriterConfig(new StandardAnalyzer()))) {
+			writer.addDocument(legacyDocument(nested));
+			writer.addDocument(legacyDocument(sibling));
+		}
+
+		Indexer indexer = new Indexer(1);
+		indexer.removeDocuments(directory.toString());
+		indexer.closeIndexWriters();
+
+		assertThat(count(nested)).isEqualTo(0);
+		assertThat(count(sibling)).isEqualTo(1);
+	}
+
+	/**
+	 * Dokumenty zapisane przez starszy indekser pod ścieżką względną, w postaci
+	 * podanej przez użytkownika, są usuwane razem z katalogiem, ale nie katalog
+	 * o nazwie z tym samym przedrostkiem.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void removeRelativeLegacyDocuments() throws IOException {
+		Path nested = Paths.get("docs/a/first.txt");
+		Path file = Paths.get("docs.txt");
+		Path sibling = Paths.get("docsbar/second.txt");
+		try (Directory polish = FSDirectory.open(Paths.get("index/indexPL"));
+				IndexWriter writer = new IndexWriter(polish,
+						new IndexWriterConfig(new StandardAnalyzer()))) {
+			writer.addDocument(legacyDocument(nested));
+			writer.addDocument(legacyDocument(file));
+			writer.addDocument(legacyDocument(sibling));
+		}
+
+		Indexer indexer = new Indexer(1);
+		indexer.removeDocuments(Paths.get("docs").toAbsolutePath().toString());
+		indexer.removeLegacyDocuments("docs/");
+		indexer.removeLegacyDocuments("docs.txt");
+		indexer.closeIndexWriters();
+
+		assertThat(count(nested)).isEqualTo(0);
+		assertThat(count(file)).isEqualTo(0);
+		assertThat(count(sibling)).isEqualTo(1);
+	}
+
+	/**
+	 * Metoda tworząca dokument w postaci sprzed wprowadzenia termów katalogów.
+	 * 
+	 * @param file ścieżka do pliku
+	 * @return dokument
+	 */
+	private static Document legacyDocument(Path file) {
+		Document document = new Document();
+		document.add(new StringField("path", file.toString(), Field.Store.YES));
+		return document;
+	}
+}
@@ -0,0 +1,62 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy wznawiania przerwanego dodawania katalogu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class IndexerResumeTest extends IndexFixture {
+	/**
+	 * Tekst w języku polskim.
+	 */
+	private static final String polish = "Ala ma kota, a kot ma Alę. Na łące rosną piękne "
+			+ "kwiaty, nad którymi świeci słońce, a pies biega wokół drzewa i szczeka "
+			+ "na ptaki siedzące na gałęziach.";
+
+	/**
+	 * Katalog z dokumentami.
+	 */
+	@TempDir
+	Path root;
+
+	/**
+	 * Plik zmieniony po zatwierdzeniu, także zmieniający język, po wznowieniu
+	 * dodawania wsadowego występuje w indeksie dokładnie raz.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void resumedBulkAddReplacesChangedFiles() throws IOException {
+		Path changed = write(root.resolve("a/changed.txt"), english);
+		Path translated = write(root.resolve("b/translated.txt"), english);
+		Path unchanged = write(root.resolve("b/unchanged.txt"), polish);
+
+		Indexer indexer = new Indexer(2);
+		indexer.bulkIndexDocuments(root, new Languages(), 2);
+		Files.write(Paths.get("index/add.journal"),
+				(root + "\n").getBytes(StandardCharsets.UTF_8));
+		write(changed, english + " The fox was changed.");
+		write(translated, polish);
+		indexer.bulkIndexDocuments(root, new Languages(), 2);
+		indexer.closeIndexWriters();
+
+		assertThat(count("index/indexEN", changed)).isEqualTo(1);
+		assertThat(count("index/indexPL", changed)).isEqualTo(0);
+		assertThat(count("index/indexEN", translated)).isEqualTo(0);
+		assertThat(count("index/indexPL", translated)).isEqualTo(1);
+		assertThat(count("index/indexPL", unchanged)).isEqualTo(1);
+		assertThat(Files.exists(Paths.get("index/add.journal"))).isFalse();
+	}
+}
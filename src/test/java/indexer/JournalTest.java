@@ -0,0 +1,106 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy dziennika postępu dodawania katalogu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class JournalTest {
+	/**
+	 * Katalog na plik dziennika.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Nowe dodawanie nie jest wznawiane, a dziennik zaczyna się od dodawanego
+	 * katalogu, po którym następują zatwierdzone katalogi.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void appendWritesRootThenCompletedDirectories() throws IOException {
+		Path file = directory.resolve("journal.txt");
+		Journal journal = new Journal(file, Paths.get("/data"));
+		assertThat(journal.resumed()).isFalse();
+
+		journal.append(Arrays.asList(Paths.get("/data/a"), Paths.get("/data/b")));
+		journal.append(Collections.singletonList(Paths.get("/data/c")));
+
+		assertThat(journal.completed(Paths.get("/data/a"))).isTrue();
+		assertThat(Files.readAllLines(file, StandardCharsets.UTF_8))
+				.containsExactly("/data", "/data/a", "/data/b", "/data/c");
+	}
+
+	/**
+	 * Dziennik tego samego katalogu wznawia dodawanie z zatwierdzonymi
+	 * katalogami, a kolejne wpisy są do niego dopisywane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void journalOfTheSameRootResumes() throws IOException {
+		Path file = directory.resolve("journal.txt");
+		new Journal(file, Paths.get("/data")).append(Collections.singletonList(Paths.get("/data/a")));
+
+		Journal journal = new Journal(file, Paths.get("/data"));
+		assertThat(journal.resumed()).isTrue();
+		assertThat(journal.completed(Paths.get("/data/a"))).isTrue();
+		assertThat(journal.completed(Paths.get("/data/b"))).isFalse();
+
+		journal.append(Collections.singletonList(Paths.get("/data/b")));
+		assertThat(Files.readAllLines(file, StandardCharsets.UTF_8))
+				.containsExactly("/data", "/data/a", "/data/b");
+	}
+
+	/**
+	 * Dziennik innego katalogu nie wznawia dodawania i jest zastępowany przy
+	 * pierwszym zapisie.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void journalOfAnotherRootIsReplaced() throws IOException {
+		Path file = directory.resolve("journal.txt");
+		new Journal(file, Paths.get("/old")).append(Collections.singletonList(Paths.get("/old/a")));
+
+		Journal journal = new Journal(file, Paths.get("/data"));
+		assertThat(journal.resumed()).isFalse();
+		assertThat(journal.completed(Paths.get("/old/a"))).isFalse();
+
+		journal.append(Collections.singletonList(Paths.get("/data/a")));
+		assertThat(Files.readAllLines(file, StandardCharsets.UTF_8))
+				.containsExactly("/data", "/data/a");
+	}
+
+	/**
+	 * Po zakończeniu dodawania dziennik znika, więc kolejne dodawanie nie jest
+	 * wznawiane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void deletedJournalDoesNotResume() throws IOException {
+		Path file = directory.resolve("journal.txt");
+		Journal journal = new Journal(file, Paths.get("/data"));
+		journal.append(Collections.singletonList(Paths.get("/data/a")));
+		journal.delete();
+
+		assertThat(file).doesNotExist();
+		assertThat(new Journal(file, Paths.get("/data")).resumed()).isFalse();
+	}
+}
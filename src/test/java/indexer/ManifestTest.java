@@ -0,0 +1,137 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy spisu zaindeksowanych plików.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class ManifestTest {
+	/**
+	 * Katalog na plik spisu.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Zapisany spis wczytuje się z tymi samymi opisami, także dla ścieżek ze
+	 * spacjami i tabulatorami, a plik tymczasowy nie zostaje na dysku.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void savedManifestLoadsTheSameEntries() throws IOException {
+		Path file = directory.resolve("manifest.txt");
+		Manifest manifest = new Manifest(file);
+		assertThat(manifest.existed()).isFalse();
+		manifest.put("/data/a.txt", 10, 1000, "aa");
+		manifest.put("/data/with space/b\tc.txt", 20, 2000, "bb");
+		manifest.save();
+
+		Manifest loaded = new Manifest(file);
+		assertThat(loaded.existed()).isTrue();
+		assertThat(loaded.paths()).containsExactlyInAnyOrder("/data/a.txt",
+				"/data/with space/b\tc.txt");
+		Manifest.Entry entry = loaded.get("/data/with space/b\tc.txt");
+		assertThat(entry.size).isEqualTo(20);
+		assertThat(entry.modified).isEqualTo(2000);
+		assertThat(entry.hash).isEqualTo("bb");
+		assertThat(directory.resolve("manifest.txt.tmp")).doesNotExist();
+	}
+
+	/**
+	 * Linie o niewłaściwej liczbie pól są pomijane.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void malformedLinesAreSkipped() throws IOException {
+		Path file = directory.resolve("manifest.txt");
+		Files.write(file, Arrays.asList("10\t1000\taa\t/data/a.txt", "broken line",
+				"20\t2000\t/data/b.txt"), StandardCharsets.UTF_8);
+
+		Manifest manifest = new Manifest(file);
+
+		assertThat(manifest.paths()).containsExactly("/data/a.txt");
+	}
+
+	/**
+	 * Usunięcie katalogu ze spisu obejmuje jego zawartość, ale nie katalogi o
+	 * nazwach zaczynających się tak samo.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void removeUnderKeepsSiblingPrefixes() throws IOException {
+		Manifest manifest = new Manifest(directory.resolve("manifest.txt"));
+		manifest.put("/data/foo", 1, 1, "a");
+		manifest.put("/data/foo/a.txt", 1, 1, "a");
+		manifest.put("/data/foo/sub/b.txt", 1, 1, "b");
+		manifest.put("/data/foobar/c.txt", 1, 1, "c");
+		manifest.put("/data/foo-old/d.txt", 1, 1, "d");
+		manifest.put("/data/foo0/e.txt", 1, 1, "e");
+
+		manifest.removeUnder("/data/foo");
+
+		assertThat(manifest.paths()).containsExactlyInAnyOrder("/data/foobar/c.txt",
+				"/data/foo-old/d.txt", "/data/foo0/e.txt");
+	}
+
+	/**
+	 * Zmiany zapisanego spisu dopisywane są do dziennika, który wczytywany jest
+	 * razem ze spisem, a zapis całego spisu usuwa dziennik.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void changesAreLoggedUntilCompaction() throws IOException {
+		Path file = directory.resolve("manifest.txt");
+		Path log = directory.resolve("manifest.txt.log");
+		Manifest manifest = new Manifest(file);
+		for (String name : new String[] { "a", "b", "c", "d" }) {
+			manifest.put("/data/" + name + ".txt", 1, 1, name);
+		}
+		manifest.save();
+		assertThat(log).doesNotExist();
+
+		manifest.put("/data/a.txt", 2, 2, "aa");
+		manifest.removeUnder("/data/b.txt");
+		manifest.save();
+		assertThat(Files.readAllLines(file)).hasSize(4);
+		assertThat(Files.readAllLines(log)).hasSize(2);
+
+		Manifest loaded = new Manifest(file);
+		assertThat(loaded.paths()).containsExactly("/data/a.txt", "/data/c.txt", "/data/d.txt");
+		assertThat(loaded.get("/data/a.txt").hash).isEqualTo("aa");
+
+		loaded.compact();
+		assertThat(log).doesNotExist();
+		assertThat(new Manifest(file).paths()).containsExactly("/data/a.txt", "/data/c.txt",
+				"/data/d.txt");
+	}
+
+	/**
+	 * Skrót zawartości pliku to SHA-256 zapisany szesnastkowo.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void hashIsHexSha256() throws IOException {
+		Path file = Files.write(directory.resolve("abc.txt"),
+				"abc".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(Manifest.hash(file))
+				.isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+	}
+}
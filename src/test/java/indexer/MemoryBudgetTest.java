@@ -0,0 +1,165 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testy budżetu pamięci na tekst dokumentów w trakcie indeksowania.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class MemoryBudgetTest {
+	/**
+	 * Czas, po którym uznajemy, że wątek czeka na budżet, w milisekundach.
+	 */
+	private static final long blocked = 200;
+
+	/**
+	 * Rezerwacje, zmiany ich rozmiaru i zwolnienia są odnotowywane w
+	 * licznikach, łącznie z największym wykorzystaniem.
+	 */
+	@Test
+	void reservationsAreAccounted() {
+		IndexerStats stats = new IndexerStats();
+		MemoryBudget budget = new MemoryBudget(100, stats);
+		assertThat(stats.getMemoryBudgetBytes()).isEqualTo(100);
+
+		long first = budget.acquire(40);
+		long second = budget.acquire(30);
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(70);
+		first = budget.resize(first, 10);
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(40);
+		budget.release(first);
+		budget.release(second);
+
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(0);
+		assertThat(stats.getMaxMemoryBudgetUsedBytes()).isEqualTo(70);
+		assertThat(stats.getMemoryBudgetWaitMillis()).isEqualTo(0);
+	}
+
+	/**
+	 * Dokument większy niż cały budżet jest przyjmowany, gdy budżet jest pusty,
+	 * a zmiana rozmiaru rezerwacji nie czeka nawet po przekroczeniu budżetu.
+	 */
+	@Test
+	void oversizedDocumentIsAdmittedWhenBudgetIsEmpty() {
+		MemoryBudget budget = new MemoryBudget(100, new IndexerStats());
+
+		long reserved = budget.acquire(500);
+		reserved = budget.resize(reserved, 1000);
+
+		assertThat(reserved).isEqualTo(1000);
+		budget.release(reserved);
+	}
+
+	/**
+	 * Rezerwacja przekraczająca budżet czeka na zwolnienie innej rezerwacji.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void acquireWaitsForRelease() throws Exception {
+		IndexerStats stats = new IndexerStats();
+		MemoryBudget budget = new MemoryBudget(100, stats);
+		long reserved = budget.acquire(80);
+
+		CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> budget.acquire(50));
+		assertThat(isBlocked(waiting)).isTrue();
+
+		budget.release(reserved);
+		assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(50);
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(50);
+		assertThat(stats.getMemoryBudgetWaitMillis()).isGreaterThan(0);
+	}
+
+	/**
+	 * Zmniejszenie rezerwacji po ekstrakcji budzi czekające wątki, jeśli zwolniło
+	 * wystarczająco dużo miejsca.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void shrinkingReservationWakesWaiters() throws Exception {
+		MemoryBudget budget = new MemoryBudget(100, new IndexerStats());
+		long reserved = budget.acquire(90);
+
+		CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> budget.acquire(50));
+		assertThat(isBlocked(waiting)).isTrue();
+
+		budget.resize(reserved, 20);
+		assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(50);
+	}
+
+	/**
+	 * Przerwanie wątku kończy czekanie, a wątek zachowuje informację o
+	 * przerwaniu.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void interruptEndsWaiting() throws Exception {
+		MemoryBudget budget = new MemoryBudget(100, new IndexerStats());
+		budget.acquire(100);
+		boolean[] interrupted = new boolean[1];
+
+		Thread thread = new Thread(() -> {
+			budget.acquire(50);
+			interrupted[0] = Thread.currentThread().isInterrupted();
+		});
+		thread.start();
+		thread.join(blocked);
+		assertThat(thread.isAlive()).isTrue();
+
+		thread.interrupt();
+		thread.join(5000);
+		assertThat(thread.isAlive()).isFalse();
+		assertThat(interrupted[0]).isTrue();
+	}
+
+	/**
+	 * Rezerwacja rośnie bez czekania, dopóki mieści się w budżecie razem z
+	 * innymi rezerwacjami, a po zwolnieniu nie rośnie już wcale.
+	 */
+	@Test
+	void reservationGrowsWithinBudget() {
+		IndexerStats stats = new IndexerStats();
+		MemoryBudget budget = new MemoryBudget(100, stats);
+		long other = budget.acquire(30);
+		MemoryBudget.Reservation reservation = budget.reserve(10);
+
+		assertThat(reservation.grow(70)).isTrue();
+		assertThat(reservation.grow(71)).isFalse();
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(100);
+
+		reservation.release();
+		assertThat(reservation.grow(20)).isFalse();
+		assertThat(stats.getMemoryBudgetUsedBytes()).isEqualTo(30);
+		budget.release(other);
+	}
+
+	/**
+	 * Metoda sprawdzająca, czy rezerwacja nie zakończyła się w wyznaczonym
+	 * czasie.
+	 * 
+	 * @param waiting wynik rezerwacji
+	 * @return true, jeśli rezerwacja wciąż czeka
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private static boolean isBlocked(CompletableFuture<Long> waiting)
+			throws InterruptedException, ExecutionException {
+		try {
+			waiting.get(blocked, TimeUnit.MILLISECONDS);
+			return false;
+		} catch (TimeoutException e) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package indexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testy limitu czasu parsowania przy ekstrakcji strumieniowej.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class ParseDeadlineTest {
+	/**
+	 * Metoda przywracająca domyślny limit czasu parsowania.
+	 */
+	@AfterEach
+	void tearDown() {
+		System.clearProperty("extractor.parseTimeoutMs");
+	}
+
+	/**
+	 * Czas, w którym parser czeka na powolnego czytelnika pełnego łącza, nie
+	 * jest wliczany do limitu, więc czytanie trwające dłużej niż limit kończy
+	 * się odczytaniem całego tekstu.
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	void slowConsumerDoesNotTimeOut() throws IOException, InterruptedException {
+		System.setProperty("extractor.parseTimeoutMs", "1000");
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 1024 * 1024) {
+			text.append("The quick brown fox jumps over the lazy dog.\n");
+		}
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+		long read = 0;
+		long start = System.nanoTime();
+		try (ExtractionEngine engine = new ExtractionEngine(new Languages());
+				StreamingText stream = engine.parseStreaming(new ByteArrayInputStream(bytes))) {
+			char[] buffer = new char[64 * 1024];
+			int count;
+			while ((count = stream.read(buffer, 0, buffer.length)) != -1) {
+				read += count;
+				Thread.sleep(100);
+			}
+		}
+
+		assertThat(System.nanoTime() - start).isGreaterThan(2_000_000_000L);
+		assertThat(read).isGreaterThanOrEqualTo(text.length());
+	}
+}
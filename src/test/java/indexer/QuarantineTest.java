@@ -0,0 +1,86 @@
+package indexer;
+
+import static indexer.IndexFixture.write;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testy kwarantanny plików, których parsowanie przekracza limit czasu.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class QuarantineTest {
+	/**
+	 * Katalog na plik spisu i pliki dokumentów.
+	 */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Metoda przywracająca domyślny próg kwarantanny.
+	 */
+	@AfterEach
+	void tearDown() {
+		System.clearProperty("indexer.quarantineAfter");
+	}
+
+	/**
+	 * Plik trafia do kwarantanny po drugim przekroczeniu limitu czasu, a
+	 * kwarantanna obowiązuje także po ponownym wczytaniu spisu.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void fileIsQuarantinedAfterSecondTimeout() throws IOException {
+		Path list = directory.resolve("quarantine.txt");
+		Path slow = write(directory.resolve("slow.pdf"), "slow");
+		Quarantine quarantine = new Quarantine(list);
+
+		assertThat(quarantine.timedOut(slow)).isFalse();
+		assertThat(quarantine.contains(slow)).isFalse();
+		assertThat(quarantine.timedOut(slow)).isTrue();
+		assertThat(quarantine.contains(slow)).isTrue();
+		assertThat(new Quarantine(list).contains(slow)).isTrue();
+	}
+
+	/**
+	 * Zmieniony plik wychodzi z kwarantanny i zaczyna liczenie przekroczeń od
+	 * nowa.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void changedFileLeavesQuarantine() throws IOException {
+		Path slow = write(directory.resolve("slow.pdf"), "slow");
+		Quarantine quarantine = new Quarantine(directory.resolve("quarantine.txt"));
+		quarantine.timedOut(slow);
+		quarantine.timedOut(slow);
+
+		write(slow, "slow and changed");
+
+		assertThat(quarantine.contains(slow)).isFalse();
+		assertThat(quarantine.timedOut(slow)).isFalse();
+	}
+
+	/**
+	 * Próg kwarantanny można zmienić ustawieniem indexer.quarantineAfter.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void thresholdIsConfigurable() throws IOException {
+		System.setProperty("indexer.quarantineAfter", "1");
+		Path slow = write(directory.resolve("slow.pdf"), "slow");
+		Quarantine quarantine = new Quarantine(directory.resolve("quarantine.txt"));
+
+		assertThat(quarantine.timedOut(slow)).isTrue();
+		assertThat(quarantine.contains(slow)).isTrue();
+	}
+}
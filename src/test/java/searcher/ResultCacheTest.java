@@ -0,0 +1,109 @@
+package searcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testy pamięci podręcznej wyników wyszukiwania.
+ * 
+ * @author Karol Soczewica
+ * @version 2019.06.21
+ */
+class ResultCacheTest {
+	/**
+	 * Wersje indeksów, z których pochodzą wyniki.
+	 */
+	private static final long[] versions = { 1, 1 };
+
+	/**
+	 * Po przekroczeniu liczby wyników usuwany jest najdawniej użyty.
+	 */
+	@Test
+	void leastRecentlyUsedEntryIsEvicted() {
+		ResultCache cache = new ResultCache(2, 1024);
+		cache.put("a", entry("a"));
+		cache.put("b", entry("b"));
+		cache.get("a", versions);
+
+		cache.put("c", entry("c"));
+
+		assertThat(cache.get("a", versions)).isNotNull();
+		assertThat(cache.get("b", versions)).isNull();
+		assertThat(cache.get("c", versions)).isNotNull();
+	}
+
+	/**
+	 * Po przekroczeniu pamięci usuwane są najdawniej użyte wyniki, a wynik
+	 * większy niż cała pamięć nie jest zapamiętywany.
+	 */
+	@Test
+	void entriesAreEvictedBySize() {
+		ResultCache cache = new ResultCache(100, 20);
+		cache.put("a", entry("aaaa"));
+		cache.put("b", entry("bbbb"));
+		cache.put("c", entry("cccc"));
+		cache.put("d", entry("ddddddddddd"));
+
+		assertThat(cache.get("a", versions)).isNull();
+		assertThat(cache.get("b", versions)).isNotNull();
+		assertThat(cache.get("c", versions)).isNotNull();
+		assertThat(cache.get("d", versions)).isNull();
+		assertThat(cache.toString()).endsWith("entries: 2, size: 16 bytes");
+	}
+
+	/**
+	 * Ponowne zapamiętanie wyniku pod tym samym kluczem zastępuje poprzedni
+	 * wynik bez podwójnego liczenia pamięci.
+	 */
+	@Test
+	void replacedEntryIsCountedOnce() {
+		ResultCache cache = new ResultCache(100, 1024);
+		cache.put("a", entry("old"));
+		cache.put("a", entry("newer"));
+
+		assertThat(cache.get("a", versions).output).isEqualTo("newer");
+		assertThat(cache.toString()).endsWith("entries: 1, size: 10 bytes");
+	}
+
+	/**
+	 * Wynik z innej wersji indeksu nie jest zwracany i zostaje usunięty, a
+	 * trafienia i chybienia są liczone.
+	 */
+	@Test
+	void staleEntryIsDropped() {
+		ResultCache cache = new ResultCache(100, 1024);
+		cache.put("a", entry("a"));
+
+		assertThat(cache.get("a", versions)).isNotNull();
+		assertThat(cache.get("a", new long[] { 1, 2 })).isNull();
+		assertThat(cache.get("a", versions)).isNull();
+		assertThat(cache.toString())
+				.isEqualTo("Cache hits: 1, misses: 2, entries: 0, size: 0 bytes");
+	}
+
+	/**
+	 * Wyczyszczenie pamięci usuwa wszystkie wyniki.
+	 */
+	@Test
+	void clearRemovesEverything() {
+		ResultCache cache = new ResultCache(100, 1024);
+		cache.put("a", entry("a"));
+		cache.put("b", entry("b"));
+
+		cache.clear();
+
+		assertThat(cache.get("a", versions)).isNull();
+		assertThat(cache.toString()).endsWith("entries: 0, size: 0 bytes");
+	}
+
+	/**
+	 * Metoda tworząca wynik o podanym tekście z bieżących wersji indeksów.
+	 * 
+	 * @param output tekst wyniku
+	 * @return wynik wyszukiwania
+	 */
+	private static ResultCache.Entry entry(String output) {
+		return new ResultCache.Entry(output, null, versions.clone());
+	}
+}